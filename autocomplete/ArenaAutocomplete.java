@@ -0,0 +1,438 @@
+package autocomplete;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Off-heap implementation of the {@link Autocomplete} interface. The characters of every term are stored back to back
+ * in one direct {@link ByteBuffer}, so the heap holds only {@code int} arrays: the start of each term in the arena, and
+ * the term numbers in a few sorted runs. Each call to {@link #addAll(Collection)} sorts only the new batch, appends it
+ * to the arena, and adds its term numbers as a new run, which is merged with the smaller runs until each run is more
+ * than twice the size of the next. Every term number is therefore merged O(log n) times in total, and queries search
+ * O(log n) runs. Matches are returned as {@link CharBuffer} views of the arena rather than copies. Removed terms are
+ * marked with tombstones that queries skip until enough accumulate to rebuild the arena without them.
+ *
+ * @see Autocomplete
+ * @see BinarySearchAutocomplete
+ */
+public class ArenaAutocomplete implements Autocomplete {
+    /**
+     * Initial capacity of the arena in characters.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    /**
+     * The arena is rebuilt once removed terms exceed this fraction of all stored terms.
+     */
+    private static final double MAX_REMOVED_RATIO = 0.25;
+    /**
+     * Characters of every term in the order they were added. Replaced by a larger copy when full; views of the old
+     * arena remain valid.
+     */
+    private CharBuffer arena;
+    /**
+     * starts[i] is the position of term i in the arena, and starts[n] is the end of the last term.
+     */
+    private int[] starts;
+    /**
+     * Sorted runs of term numbers, oldest and largest first.
+     */
+    private final List<Run> runs;
+    /**
+     * Number of stored terms, including removed terms.
+     */
+    private int n;
+    /**
+     * Number of removed terms whose characters are still in the arena.
+     */
+    private int removedCount;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public ArenaAutocomplete() {
+        this.arena = ByteBuffer.allocateDirect(INITIAL_CAPACITY * Character.BYTES).asCharBuffer();
+        this.starts = new int[1];
+        this.runs = new ArrayList<>();
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        if (terms.isEmpty()) {
+            return;
+        }
+        CharSequence[] batch = terms.toArray(new CharSequence[0]);
+        StringSorts.parallelSort(batch);
+        long length = starts[n];
+        for (CharSequence term : batch) {
+            length += term.length();
+        }
+        if (length > Integer.MAX_VALUE / Character.BYTES) {
+            throw new IllegalStateException("arena cannot hold " + length + " characters");
+        }
+        reserve((int) length);
+        if (starts.length < n + batch.length + 1) {
+            int[] resized = new int[Math.max(2 * starts.length, n + batch.length + 1)];
+            System.arraycopy(starts, 0, resized, 0, n + 1);
+            starts = resized;
+        }
+        // Appending the batch in sorted order makes its term numbers a sorted run [n, n + batch.length).
+        int position = starts[n];
+        int[] order = new int[batch.length];
+        for (int i = 0; i < batch.length; i += 1) {
+            CharSequence term = batch[i];
+            for (int j = 0; j < term.length(); j += 1) {
+                arena.put(position + j, term.charAt(j));
+            }
+            position += term.length();
+            starts[n + i + 1] = position;
+            order[i] = n + i;
+        }
+        n += batch.length;
+        runs.add(new Run(order, new BitSet()));
+        int first = SortedRuns.mergeStart(runs.size(), r -> runs.get(r).order.length);
+        if (first < runs.size() - 1) {
+            merge(first);
+        }
+    }
+
+    /**
+     * Removes terms by marking their sorted positions with tombstones, so each removal costs one binary search per run.
+     * Once removed terms exceed a fraction of all stored terms, the arena is rebuilt without them.
+     */
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            if (term == null) {
+                throw new IllegalArgumentException("calls remove() with null key");
+            }
+            for (Run run : runs) {
+                for (int i = SortedRuns.bound(0, run.order.length, precedes(run, term, false));
+                     i < run.order.length && equals(run.order[i], term); i += 1) {
+                    if (!run.removed.get(i)) {
+                        run.removed.set(i);
+                        removedCount += 1;
+                    }
+                }
+            }
+        }
+        if (removedCount > n * MAX_REMOVED_RATIO) {
+            compact();
+        }
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        for (PrimitiveIterator.OfInt matches = cursor(prefix); matches.hasNext(); ) {
+            result.add(term(matches.nextInt()));
+        }
+        return result;
+    }
+
+    /**
+     * Answers the prefixes in sorted order, galloping forward in each run from the bounds of the previous prefix so
+     * that each chunk of the batch is one sweep over every run.
+     */
+    @Override
+    public List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        return PrefixBatches.allMatches(prefixes, true, (batch, from, to, results) -> {
+            int[] lo = new int[runs.size()];
+            for (int i = from; i < to; i += 1) {
+                CharSequence prefix = batch[i];
+                List<CharSequence> matches = new ArrayList<>();
+                if (prefix.length() > 0) {
+                    int[] hi = new int[runs.size()];
+                    for (int r = 0; r < runs.size(); r += 1) {
+                        Run run = runs.get(r);
+                        lo[r] = SortedRuns.gallop(lo[r], run.order.length, precedes(run, prefix, false));
+                        hi[r] = SortedRuns.gallop(lo[r], run.order.length, precedes(run, prefix, true));
+                    }
+                    for (PrimitiveIterator.OfInt cursor = cursor(lo.clone(), hi); cursor.hasNext(); ) {
+                        matches.add(term(cursor.nextInt()));
+                    }
+                }
+                results.set(i, matches);
+            }
+        });
+    }
+
+    /**
+     * Passes each matching term to the sink as one reused view of the arena, repositioned for each match.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        CharBuffer view = arena.duplicate();
+        for (PrimitiveIterator.OfInt matches = cursor(prefix); matches.hasNext(); ) {
+            int t = matches.nextInt();
+            view.limit(starts[t + 1]).position(starts[t]);
+            sink.accept(view);
+        }
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        return StreamSupport.intStream(
+                Spliterators.spliteratorUnknownSize(cursor(prefix), Spliterator.ORDERED), false
+        ).mapToObj(this::term);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (Run run : runs) {
+            int start = SortedRuns.bound(0, run.order.length, precedes(run, prefix, false));
+            int end = SortedRuns.gallop(start, run.order.length, precedes(run, prefix, true));
+            count += end - start;
+            for (int i = run.removed.nextSetBit(start); i >= 0 && i < end; i = run.removed.nextSetBit(i + 1)) {
+                count -= 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of terms, including duplicates.
+     *
+     * @return the number of terms.
+     */
+    public int size() {
+        return n - removedCount;
+    }
+
+    /**
+     * Reports the terms and the retained bytes, including the off-heap arena. Lookups binary search the offset tables
+     * of the runs, so no nodes are counted.
+     */
+    @Override
+    public StructureStats stats() {
+        long bytes = (long) arena.capacity() * Character.BYTES
+                + StructureStats.arrayBytes(starts.length, Integer.BYTES);
+        for (Run run : runs) {
+            bytes += StructureStats.arrayBytes(run.order.length, Integer.BYTES)
+                    + StructureStats.arrayBytes(run.removed.size() / Long.SIZE, Long.BYTES);
+        }
+        return new StructureStats(size(), -1, bytes, new long[0]);
+    }
+
+    /**
+     * Returns a view of the given term.
+     */
+    private CharSequence term(int t) {
+        return arena.subSequence(starts[t], starts[t + 1]);
+    }
+
+    /**
+     * Returns a cursor over the live term numbers that match the given non-empty prefix in every run.
+     */
+    private PrimitiveIterator.OfInt cursor(CharSequence prefix) {
+        int[] lo = new int[runs.size()];
+        int[] hi = new int[runs.size()];
+        for (int r = 0; r < runs.size(); r += 1) {
+            Run run = runs.get(r);
+            lo[r] = SortedRuns.bound(0, run.order.length, precedes(run, prefix, false));
+            hi[r] = SortedRuns.gallop(lo[r], run.order.length, precedes(run, prefix, true));
+        }
+        return cursor(lo, hi);
+    }
+
+    /**
+     * Returns a cursor over the live term numbers in the ranges [lo[r], hi[r]) of every run in merged sorted order.
+     */
+    private PrimitiveIterator.OfInt cursor(int[] lo, int[] hi) {
+        BitSet[] removed = new BitSet[runs.size()];
+        for (int r = 0; r < removed.length; r += 1) {
+            removed[r] = runs.get(r).removed;
+        }
+        SortedRuns.Cursor cursor = new SortedRuns.Cursor(lo, hi, removed,
+                (r, i, s, j) -> compare(runs.get(r).order[i], runs.get(s).order[j]));
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                int r = cursor.next();
+                return runs.get(r).order[cursor.position()];
+            }
+        };
+    }
+
+    /**
+     * Grows the arena to hold at least the given number of characters.
+     */
+    private void reserve(int capacity) {
+        if (capacity <= arena.capacity()) {
+            return;
+        }
+        int resized = (int) Math.min(Integer.MAX_VALUE / Character.BYTES, Math.max(2L * arena.capacity(), capacity));
+        CharBuffer larger = ByteBuffer.allocateDirect(resized * Character.BYTES).asCharBuffer();
+        larger.put(0, arena, 0, starts[n]);
+        arena = larger;
+    }
+
+    /**
+     * Rebuilds the arena from the terms without tombstones as one sorted run. The remaining terms are renumbered in
+     * sorted order.
+     */
+    private void compact() {
+        int live = n - removedCount;
+        int[] order = new int[live];
+        int[] lo = new int[runs.size()];
+        int[] hi = new int[runs.size()];
+        for (int r = 0; r < runs.size(); r += 1) {
+            hi[r] = runs.get(r).order.length;
+        }
+        PrimitiveIterator.OfInt terms = cursor(lo, hi);
+        for (int k = 0; k < live; k += 1) {
+            order[k] = terms.nextInt();
+        }
+        int[] compactStarts = new int[live + 1];
+        int length = 0;
+        for (int k = 0; k < live; k += 1) {
+            length += starts[order[k] + 1] - starts[order[k]];
+            compactStarts[k + 1] = length;
+        }
+        CharBuffer compactArena = ByteBuffer.allocateDirect(Math.max(INITIAL_CAPACITY, length) * Character.BYTES)
+                .asCharBuffer();
+        for (int k = 0; k < live; k += 1) {
+            int t = order[k];
+            compactArena.put(compactStarts[k], arena, starts[t], starts[t + 1] - starts[t]);
+            order[k] = k;
+        }
+        arena = compactArena;
+        starts = compactStarts;
+        runs.clear();
+        if (live > 0) {
+            runs.add(new Run(order, new BitSet()));
+        }
+        removedCount = 0;
+        n = live;
+    }
+
+    /**
+     * Merges the runs from the given index onward into one run, dropping tombstoned term numbers. Their characters stay
+     * in the arena until it is rebuilt.
+     */
+    private void merge(int first) {
+        int count = runs.size();
+        int[] lo = new int[count];
+        int[] hi = new int[count];
+        int size = 0;
+        for (int r = first; r < count; r += 1) {
+            hi[r] = runs.get(r).order.length;
+            size += hi[r];
+        }
+        int[] order = new int[size];
+        int k = 0;
+        for (PrimitiveIterator.OfInt terms = cursor(lo, hi); terms.hasNext(); ) {
+            order[k++] = terms.nextInt();
+        }
+        runs.subList(first, count).clear();
+        if (k > 0) {
+            runs.add(new Run(k == size ? order : Arrays.copyOf(order, k), new BitSet()));
+        }
+    }
+
+    /**
+     * Returns true if the given term in the arena is equal to the given sequence.
+     */
+    private boolean equals(int t, CharSequence term) {
+        int begin = starts[t];
+        if (starts[t + 1] - begin != term.length()) {
+            return false;
+        }
+        for (int k = 0; k < term.length(); k += 1) {
+            if (arena.get(begin + k) != term.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two terms in the arena in the same order as {@link CharSequence#compare(CharSequence, CharSequence)}.
+     */
+    private int compare(int s, int t) {
+        int i = starts[s];
+        int j = starts[t];
+        int m = Math.min(starts[s + 1] - i, starts[t + 1] - j);
+        for (int k = 0; k < m; k += 1) {
+            char x = arena.get(i + k);
+            char y = arena.get(j + k);
+            if (x != y) {
+                return Character.compare(x, y);
+            }
+        }
+        return Integer.compare(starts[s + 1] - i, starts[t + 1] - j);
+    }
+
+    /**
+     * Returns whether the term at each position of the run precedes the lower bound of the prefix, or with
+     * {@code upper}, its upper bound.
+     */
+    private IntPredicate precedes(Run run, CharSequence prefix, boolean upper) {
+        return i -> precedes(run.order[i], prefix, upper);
+    }
+
+    /**
+     * Returns true if the given term belongs before the lower bound of the prefix, or with {@code upper}, before its
+     * upper bound.
+     */
+    private boolean precedes(int t, CharSequence prefix, boolean upper) {
+        int begin = starts[t];
+        int length = starts[t + 1] - begin;
+        int m = Math.min(prefix.length(), length);
+        int k = 0;
+        while (k < m && prefix.charAt(k) == arena.get(begin + k)) {
+            k += 1;
+        }
+        int cmp;
+        if (k == prefix.length()) {
+            cmp = 0;
+        } else if (k == length) {
+            cmp = 1;
+        } else {
+            cmp = Character.compare(prefix.charAt(k), arena.get(begin + k));
+        }
+        return cmp > 0 || (upper && cmp == 0);
+    }
+
+    /**
+     * A sorted run of term numbers and the tombstones marking removed positions in it.
+     */
+    private static class Run {
+        private final int[] order;
+        private final BitSet removed;
+
+        Run(int[] order, BitSet removed) {
+            this.order = order;
+            this.removed = removed;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package autocomplete;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Suggest exact-character prefix matches for any query {@link CharSequence}.
@@ -10,6 +13,14 @@ import java.util.List;
  * @see SequentialSearchAutocomplete
  * @see BinarySearchAutocomplete
  * @see TernarySearchTreeAutocomplete
+ * @see PackedTernarySearchTreeAutocomplete
+ * @see RadixTreeAutocomplete
+ * @see LoudsAutocomplete
+ * @see ArenaAutocomplete
+ * @see ConcurrentAutocomplete
+ * @see CachingAutocomplete
+ * @see InstrumentedAutocomplete
+ * @see WeightedAutocomplete
  */
 public interface Autocomplete {
     /**
@@ -19,6 +30,29 @@ public interface Autocomplete {
      */
     void addAll(Collection<? extends CharSequence> terms);
 
+    /**
+     * Removes every copy of each of the given autocompletion terms. Terms that are not present are ignored. This is an
+     * optional operation.
+     *
+     * @param terms collection containing elements to be removed.
+     * @throws UnsupportedOperationException if this implementation does not support removal.
+     */
+    default void removeAll(Collection<? extends CharSequence> terms) {
+        throw new UnsupportedOperationException("removeAll");
+    }
+
+    /**
+     * Replaces an autocompletion term with another, for example when a city is renamed.
+     *
+     * @param term        term to be removed.
+     * @param replacement term to be added in its place.
+     * @throws UnsupportedOperationException if this implementation does not support removal.
+     */
+    default void replace(CharSequence term, CharSequence replacement) {
+        removeAll(List.of(term));
+        addAll(List.of(replacement));
+    }
+
     /**
      * Returns all autocompletion terms that match the given prefix.
      *
@@ -26,6 +60,88 @@ public interface Autocomplete {
      */
     List<CharSequence> allMatches(CharSequence prefix);
 
+    /**
+     * Returns all autocompletion terms that match each of the given prefixes. Implementations with sorted storage
+     * answer the prefixes in sorted order with one sweep (see {@link PrefixBatches}), in parallel for large batches.
+     *
+     * @param prefixes search queries.
+     * @return the matches of each prefix, in the order of the given prefixes.
+     */
+    default List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        List<List<CharSequence>> results = new ArrayList<>(prefixes.size());
+        for (CharSequence prefix : prefixes) {
+            results.add(allMatches(prefix));
+        }
+        return results;
+    }
+
+    /**
+     * Passes each autocompletion term that matches the given prefix to the sink, without building a list of results.
+     * Implementations may pass a reused buffer rather than a new sequence for each match, so the sequence given to the
+     * sink is only valid until the sink returns; sinks that keep matches must copy them, e.g. with
+     * {@link CharSequence#toString()}.
+     *
+     * @param prefix search query.
+     * @param sink   receives each matching term.
+     */
+    default void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        matches(prefix).forEach(sink);
+    }
+
+    /**
+     * Returns a lazily-evaluated stream of all autocompletion terms that match the given prefix. Matches are found only
+     * as the stream is consumed, so short-circuiting operations such as {@link Stream#limit(long)} end the search
+     * early.
+     *
+     * @param prefix search query.
+     * @return a stream of the matching terms.
+     */
+    default Stream<CharSequence> matches(CharSequence prefix) {
+        return allMatches(prefix).stream();
+    }
+
+    /**
+     * Returns the number of autocompletion terms that match the given prefix.
+     *
+     * @param prefix search query.
+     * @return the number of matching terms.
+     */
+    default int countMatches(CharSequence prefix) {
+        return allMatches(prefix).size();
+    }
+
+    /**
+     * Returns the size and shape of this data structure, computed on demand. Implementations that do not track their
+     * structure return {@link StructureStats#UNKNOWN}.
+     *
+     * @return the current structure stats.
+     */
+    default StructureStats stats() {
+        return StructureStats.UNKNOWN;
+    }
+
+    /**
+     * Returns the total number of nodes visited so far by queries from the calling thread, or 0 if this implementation
+     * does not count them. Counts are kept per thread, so the difference between two calls around a query is the
+     * number of nodes that query visited even while other threads query the same instance.
+     *
+     * @return the total number of nodes visited by queries from the calling thread.
+     */
+    default long nodesVisited() {
+        return 0;
+    }
+
+    /**
+     * Returns true if every match of a query starts with the query, so that the matches of a longer query can be found
+     * by filtering the matches of a shorter one with {@link #isPrefixOf(CharSequence, CharSequence)}. Implementations
+     * that match the query elsewhere in a term return false.
+     *
+     * @return true if and only if every match starts with its query.
+     */
+    default boolean matchesPrefixes() {
+        return true;
+    }
+
     /**
      * Returns true if and only if the given term matches the given prefix.
      *
@@ -34,10 +150,16 @@ public interface Autocomplete {
      * @return true if and only if the given term matches the given prefix.
      */
     static boolean isPrefixOf(CharSequence prefix, CharSequence term) {
-        if (prefix.length() <= term.length()) {
-            CharSequence part = term.subSequence(0, prefix.length());
-            return CharSequence.compare(prefix, part) == 0;
+        int n = prefix.length();
+        if (n > term.length()) {
+            return false;
+        }
+        // Compare in place rather than through term.subSequence, which may allocate a new sequence.
+        for (int i = 0; i < n; i += 1) {
+            if (prefix.charAt(i) != term.charAt(i)) {
+                return false;
+            }
         }
-        return false;
+        return true;
     }
 }
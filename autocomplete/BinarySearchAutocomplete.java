@@ -1,61 +1,318 @@
 package autocomplete;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Binary search implementation of the {@link Autocomplete} interface.
+ * Binary search implementation of the {@link Autocomplete} interface. Terms are kept in a few sorted runs of
+ * decreasing size: each call to {@link #addAll(Collection)} sorts only the new batch and merges it with the smaller
+ * runs, so every term is merged O(log n) times in total instead of re-sorting all terms on every call. Removed terms
+ * are marked with tombstones at their positions in each run and filtered out of query results until their run is
+ * next merged, so a term added again after it was removed is stored as a new, live copy.
  *
  * @see Autocomplete
  */
 public class BinarySearchAutocomplete implements Autocomplete {
     /**
-     * {@link List} of added autocompletion terms.
+     * All runs are merged into one once tombstoned copies exceed this fraction of all stored terms.
      */
-    private final List<CharSequence> terms;
+    private static final double MAX_REMOVED_RATIO = 0.25;
+    /**
+     * Sorted runs of added autocompletion terms, oldest and largest first. Each run is more than twice the size of
+     * the next, so there are at most O(log n) runs.
+     */
+    private final List<Run> runs;
+    /**
+     * Number of tombstoned copies across all runs.
+     */
+    private int removedCopies;
 
     /**
      * Constructs an empty instance.
      */
     public BinarySearchAutocomplete() {
-        this.terms = new ArrayList<>();
+        this.runs = new ArrayList<>();
     }
 
     @Override
     public void addAll(Collection<? extends CharSequence> terms) {
-        //throw new UnsupportedOperationException("Not implemented yet");
+        if (terms.isEmpty()) {
+            return;
+        }
+        CharSequence[] batch = terms.toArray(new CharSequence[0]);
+        StringSorts.parallelSort(batch);
+        this.runs.add(new Run(new ArrayList<>(Arrays.asList(batch)), new BitSet()));
+        int first = SortedRuns.mergeStart(this.runs.size(), r -> this.runs.get(r).terms.size());
+        if (first < this.runs.size() - 1) {
+            merge(first);
+        }
+    }
+
+    /**
+     * Removes terms by marking their positions with tombstones that queries skip, so each removal costs one binary
+     * search per run. Once tombstoned copies exceed a fraction of all stored terms, the runs are merged into one
+     * without them.
+     */
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
         for (CharSequence term : terms) {
-            this.terms.add(term);
+            if (term == null) {
+                throw new IllegalArgumentException("calls remove() with null key");
+            }
+            for (Run run : this.runs) {
+                List<CharSequence> sorted = run.terms;
+                for (int i = SortedRuns.bound(0, sorted.size(), precedes(sorted, term, false));
+                     i < sorted.size() && CharSequence.compare(sorted.get(i), term) == 0; i++) {
+                    if (!run.removed.get(i)) {
+                        run.removed.set(i);
+                        this.removedCopies++;
+                    }
+                }
+            }
+        }
+        if (this.removedCopies > MAX_REMOVED_RATIO * stored()) {
+            merge(0);
         }
-        Collections.sort(this.terms, CharSequence::compare);
     }
 
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
-        //Create output ArrayList
-        List<CharSequence> output = new ArrayList<>();
+        if (prefix == null) {
+            return new ArrayList<>();
+        }
+        int[] lo = new int[this.runs.size()];
+        int[] hi = new int[this.runs.size()];
+        bounds(prefix, lo, hi);
+        return matches(lo, hi);
+    }
 
-        //Check null condition
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
         if (prefix == null) {
-            return output;
+            return;
+        }
+        int[] lo = new int[this.runs.size()];
+        int[] hi = new int[this.runs.size()];
+        bounds(prefix, lo, hi);
+        Iterator<CharSequence> matches = iterator(lo, hi);
+        while (matches.hasNext()) {
+            sink.accept(matches.next());
         }
+    }
 
-        //Ensure i is always positive to run next for loop
-        int i = Collections.binarySearch(this.terms, prefix, CharSequence::compare);
-        if(i < 0) {
-            i = -(i++);
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null) {
+            return Stream.empty();
         }
+        int[] lo = new int[this.runs.size()];
+        int[] hi = new int[this.runs.size()];
+        bounds(prefix, lo, hi);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator(lo, hi), Spliterator.ORDERED | Spliterator.NONNULL
+        ), false);
+    }
+
+    /**
+     * Returns an unmodifiable list of the sorted terms that match the given prefix. If all terms are in one run and
+     * none of the matches have been removed, this is a view found with two binary searches and without copying any
+     * terms; otherwise the matches of every run are merged into a new list. A view is only valid until the next call
+     * to {@link #addAll(Collection)} or {@link #removeAll(Collection)}.
+     *
+     * @param prefix search query.
+     * @return an unmodifiable list of the matching terms.
+     */
+    public List<CharSequence> matchRange(CharSequence prefix) {
+        if (prefix == null || this.runs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int[] lo = new int[this.runs.size()];
+        int[] hi = new int[this.runs.size()];
+        bounds(prefix, lo, hi);
+        if (this.runs.size() == 1 && !this.runs.get(0).hasRemoved(lo[0], hi[0])) {
+            return Collections.unmodifiableList(this.runs.get(0).terms.subList(lo[0], hi[0]));
+        }
+        return Collections.unmodifiableList(matches(lo, hi));
+    }
+
+    /**
+     * Answers the prefixes in sorted order with one sweep over each run, galloping forward from the bounds of the
+     * previous prefix in that run, and merges the matching ranges of the runs while skipping tombstoned terms. The
+     * runs are only read, so chunks of the batch are swept in parallel.
+     */
+    @Override
+    public List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        return PrefixBatches.allMatches(prefixes, true, (sorted, from, to, results) -> {
+            int[] lo = new int[this.runs.size()];
+            for (int i = from; i < to; i++) {
+                int[] hi = new int[this.runs.size()];
+                for (int r = 0; r < this.runs.size(); r++) {
+                    List<CharSequence> run = this.runs.get(r).terms;
+                    lo[r] = SortedRuns.gallop(lo[r], run.size(), precedes(run, sorted[i], false));
+                    hi[r] = SortedRuns.gallop(lo[r], run.size(), precedes(run, sorted[i], true));
+                }
+                results.set(i, matches(lo.clone(), hi));
+            }
+        });
+    }
 
-        // adds elements that contain prefix to output ArrayList
-        for (int j=i; j< this.terms.size(); j++) {
-            if (Autocomplete.isPrefixOf(prefix, this.terms.get(j))) {
-                output.add(this.terms.get(j));
-            }else {
-                return output;
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Run run : this.runs) {
+            int start = SortedRuns.bound(0, run.terms.size(), precedes(run.terms, prefix, false));
+            int end = SortedRuns.gallop(start, run.terms.size(), precedes(run.terms, prefix, true));
+            count += end - start;
+            for (int i = run.removed.nextSetBit(start); i >= 0 && i < end; i = run.removed.nextSetBit(i + 1)) {
+                count--;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reports the live terms and the bytes of the runs and their tombstones, counting each stored copy of a term that
+     * has not yet been merged away.
+     */
+    @Override
+    public StructureStats stats() {
+        long bytes = 0;
+        for (Run run : this.runs) {
+            bytes += StructureStats.arrayBytes(run.terms.size(), StructureStats.REFERENCE)
+                    + StructureStats.arrayBytes(run.removed.size() / Long.SIZE, Long.BYTES);
+            for (CharSequence term : run.terms) {
+                bytes += StructureStats.stringBytes(term);
             }
         }
+        return new StructureStats(stored() - this.removedCopies, -1, bytes, new long[0]);
+    }
+
+    /**
+     * Stores the bounds of the terms that match the given prefix in each run.
+     */
+    private void bounds(CharSequence prefix, int[] lo, int[] hi) {
+        for (int r = 0; r < this.runs.size(); r++) {
+            List<CharSequence> run = this.runs.get(r).terms;
+            lo[r] = SortedRuns.bound(0, run.size(), precedes(run, prefix, false));
+            hi[r] = SortedRuns.gallop(lo[r], run.size(), precedes(run, prefix, true));
+        }
+    }
+
+    /**
+     * Returns a new list of the live terms in the given range of each run, in sorted order.
+     */
+    private List<CharSequence> matches(int[] lo, int[] hi) {
+        if (this.runs.size() == 1 && !this.runs.get(0).hasRemoved(lo[0], hi[0])) {
+            //Copy the matching range in one step instead of checking every match
+            return new ArrayList<>(this.runs.get(0).terms.subList(lo[0], hi[0]));
+        }
+        List<CharSequence> output = new ArrayList<>();
+        Iterator<CharSequence> matches = iterator(lo, hi);
+        while (matches.hasNext()) {
+            output.add(matches.next());
+        }
         return output;
     }
+
+    /**
+     * Returns the number of stored terms, including tombstoned copies.
+     */
+    private int stored() {
+        int count = 0;
+        for (Run run : this.runs) {
+            count += run.terms.size();
+        }
+        return count;
+    }
+
+    /**
+     * Merges the runs from the given index onward into one run, dropping tombstoned terms.
+     */
+    private void merge(int first) {
+        int count = this.runs.size();
+        int[] lo = new int[count];
+        int[] hi = new int[count];
+        int size = 0;
+        for (int r = first; r < count; r++) {
+            hi[r] = this.runs.get(r).terms.size();
+            size += hi[r];
+        }
+        List<CharSequence> result = new ArrayList<>(size);
+        Iterator<CharSequence> terms = iterator(lo, hi);
+        while (terms.hasNext()) {
+            result.add(terms.next());
+        }
+        this.removedCopies -= size - result.size();
+        this.runs.subList(first, count).clear();
+        if (!result.isEmpty()) {
+            this.runs.add(new Run(result, new BitSet()));
+        }
+    }
+
+    /**
+     * Returns an iterator over the live terms in the ranges [lo[r], hi[r]) of every run in merged sorted order.
+     */
+    private Iterator<CharSequence> iterator(int[] lo, int[] hi) {
+        BitSet[] removed = new BitSet[this.runs.size()];
+        for (int r = 0; r < removed.length; r++) {
+            removed[r] = this.runs.get(r).removed;
+        }
+        SortedRuns.Cursor cursor = new SortedRuns.Cursor(lo, hi, removed, (r, i, s, j) ->
+                CharSequence.compare(this.runs.get(r).terms.get(i), this.runs.get(s).terms.get(j)));
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public CharSequence next() {
+                int r = cursor.next();
+                return runs.get(r).terms.get(cursor.position());
+            }
+        };
+    }
+
+    /**
+     * Returns whether each position of the run precedes the lower bound of the prefix, or with {@code upper}, its
+     * upper bound.
+     */
+    private static IntPredicate precedes(List<CharSequence> run, CharSequence prefix, boolean upper) {
+        return i -> SortedRuns.precedes(run.get(i), prefix, upper);
+    }
+
+    /**
+     * A sorted run of terms and the tombstones marking removed positions in it.
+     */
+    private static class Run {
+        private final List<CharSequence> terms;
+        private final BitSet removed;
+
+        Run(List<CharSequence> terms, BitSet removed) {
+            this.terms = terms;
+            this.removed = removed;
+        }
+
+        /**
+         * Returns true if any position in [start, end) is tombstoned.
+         */
+        boolean hasRemoved(int start, int end) {
+            int first = removed.nextSetBit(start);
+            return first >= 0 && first < end;
+        }
+    }
 }
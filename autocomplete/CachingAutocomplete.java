@@ -0,0 +1,204 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link Autocomplete} decorator that remembers the results of recent queries in a least-recently-used cache. Typeahead
+ * clients send each keystroke as a new, longer prefix, so a query that extends a cached prefix is answered by filtering
+ * the cached matches instead of searching the wrapped implementation from scratch. Implementations whose matches need
+ * not start with the query, such as {@link InfixAutocomplete}, are only cached for repeated queries. The cache is
+ * bounded by the total number of cached matches and is cleared whenever terms are added or removed.
+ *
+ * @see Autocomplete
+ */
+public class CachingAutocomplete implements Autocomplete {
+    /**
+     * Default maximum number of matches held across all cached prefixes.
+     */
+    private static final int DEFAULT_MAX_CACHED_MATCHES = 1 << 16;
+    private final Autocomplete delegate;
+    private final int maxCachedMatches;
+    /**
+     * Cached matches for each prefix in least-recently-used order.
+     */
+    private final LinkedHashMap<String, List<CharSequence>> cache;
+    /**
+     * Number of matches held across all cached prefixes.
+     */
+    private int cachedMatches;
+    private long hits;
+    private long refinements;
+    private long misses;
+
+    /**
+     * Constructs an empty cache in front of the given implementation.
+     *
+     * @param delegate the wrapped {@link Autocomplete}.
+     */
+    public CachingAutocomplete(Autocomplete delegate) {
+        this(delegate, DEFAULT_MAX_CACHED_MATCHES);
+    }
+
+    /**
+     * Constructs an empty cache in front of the given implementation.
+     *
+     * @param delegate         the wrapped {@link Autocomplete}.
+     * @param maxCachedMatches maximum number of matches held across all cached prefixes.
+     * @throws IllegalArgumentException if the maximum is negative.
+     */
+    public CachingAutocomplete(Autocomplete delegate, int maxCachedMatches) {
+        if (maxCachedMatches < 0) {
+            throw new IllegalArgumentException("maxCachedMatches must not be negative: " + maxCachedMatches);
+        }
+        this.delegate = delegate;
+        this.maxCachedMatches = maxCachedMatches;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        delegate.addAll(terms);
+        cache.clear();
+        cachedMatches = 0;
+    }
+
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        delegate.removeAll(terms);
+        cache.clear();
+        cachedMatches = 0;
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return delegate.allMatches(prefix);
+        }
+        String key = prefix.toString();
+        List<CharSequence> matches = cache.get(key);
+        if (matches != null) {
+            hits += 1;
+            return new ArrayList<>(matches);
+        }
+        // Refine the longest cached prefix of this query, if any. Matches that need not start with the query cannot
+        // be refined this way, so those queries always go to the wrapped implementation.
+        List<CharSequence> base = null;
+        boolean refinable = delegate.matchesPrefixes();
+        for (int length = key.length() - 1; refinable && length > 0 && base == null; length -= 1) {
+            base = cache.get(key.substring(0, length));
+        }
+        if (base != null) {
+            refinements += 1;
+            matches = new ArrayList<>();
+            for (CharSequence term : base) {
+                if (Autocomplete.isPrefixOf(prefix, term)) {
+                    matches.add(term);
+                }
+            }
+        } else {
+            misses += 1;
+            matches = delegate.allMatches(prefix);
+        }
+        put(key, matches);
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Passes each cached match to the sink without copying the cached list. Queries that miss the cache are answered
+     * as by {@link #allMatches(CharSequence)}.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        List<CharSequence> matches = prefix == null || prefix.length() == 0 ? null : cache.get(prefix.toString());
+        if (matches == null) {
+            allMatches(prefix).forEach(sink);
+            return;
+        }
+        hits += 1;
+        for (CharSequence term : matches) {
+            sink.accept(term);
+        }
+    }
+
+    @Override
+    public boolean matchesPrefixes() {
+        return delegate.matchesPrefixes();
+    }
+
+    /**
+     * Returns the structure stats of the wrapped implementation, which do not include the cache.
+     */
+    @Override
+    public StructureStats stats() {
+        return delegate.stats();
+    }
+
+    /**
+     * Returns the nodes visited by the wrapped implementation for queries from the calling thread, which does not visit
+     * any for cache hits.
+     */
+    @Override
+    public long nodesVisited() {
+        return delegate.nodesVisited();
+    }
+
+    /**
+     * Returns the number of queries answered directly from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of queries answered by filtering the cached matches of a shorter prefix.
+     *
+     * @return the number of refined queries.
+     */
+    public long refinements() {
+        return refinements;
+    }
+
+    /**
+     * Returns the number of queries that were passed to the wrapped implementation.
+     *
+     * @return the number of cache misses.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of non-empty queries that did not need the wrapped implementation.
+     *
+     * @return the combined hit and refinement rate, or 0 if there have been no queries.
+     */
+    public double hitRate() {
+        long total = hits + refinements + misses;
+        return total == 0 ? 0 : (double) (hits + refinements) / total;
+    }
+
+    /**
+     * Caches the given matches and evicts least-recently-used entries until the cache is within its bound. Results
+     * larger than the whole bound are not cached.
+     */
+    private void put(String key, List<CharSequence> matches) {
+        if (matches.size() > maxCachedMatches) {
+            return;
+        }
+        cache.put(key, matches);
+        cachedMatches += matches.size();
+        Iterator<Map.Entry<String, List<CharSequence>>> eldest = cache.entrySet().iterator();
+        while (cachedMatches > maxCachedMatches) {
+            cachedMatches -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Thread-safe copy-on-write {@link Autocomplete} that wraps any other implementation. Readers query an immutable
+ * snapshot without taking any locks, while writers build new indexes from scratch and publish them by replacing the
+ * snapshot reference. To amortize rebuilding, each snapshot holds a few levels of decreasing size, each an index of the
+ * wrapped implementation. New terms are added to the smallest level until it reaches the batch size; after that, each
+ * batch starts a new level, and a level is merged into the level before it as soon as it is at least half its size.
+ * Every term is therefore rebuilt O(log n) times in total, and there are O(log n) levels to query.
+ * <p>
+ * Matches from the levels are merged in sorted order, so results are sorted whenever the wrapped implementation
+ * returns sorted matches. A term added again while an earlier copy is stored in another level is reported once per
+ * copy until the levels are merged.
+ * <p>
+ * Removed terms are dropped from the smallest level immediately and recorded as tombstones that hide them in the
+ * larger levels. Once tombstones exceed a fraction of a level, it is rebuilt without them on the common fork-join pool
+ * while readers keep using the current snapshot.
+ *
+ * @see Autocomplete
+ */
+public class ConcurrentAutocomplete implements Autocomplete {
+    /**
+     * Default number of recent terms to collect before starting a new level.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    /**
+     * A level is rebuilt in the background once its tombstones exceed this fraction of its terms.
+     */
+    private static final double MAX_REMOVED_RATIO = 0.25;
+    /**
+     * Creates the empty indexes that back each level.
+     */
+    private final Supplier<? extends Autocomplete> factory;
+    private final int batchSize;
+    /**
+     * The current snapshot; replaced (never modified) by writers while holding this object's lock.
+     */
+    private volatile Snapshot snapshot;
+    /**
+     * Whether a background rebuild of a level is in progress; guarded by this object's lock.
+     */
+    private boolean compacting;
+
+    /**
+     * Constructs an empty instance backed by indexes from the given factory.
+     *
+     * @param factory creates a new empty {@link Autocomplete} each time it is called.
+     */
+    public ConcurrentAutocomplete(Supplier<? extends Autocomplete> factory) {
+        this(factory, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs an empty instance backed by indexes from the given factory.
+     *
+     * @param factory   creates a new empty {@link Autocomplete} each time it is called.
+     * @param batchSize number of recent terms to collect in the smallest level before starting a new level.
+     * @throws IllegalArgumentException if the batch size is not positive.
+     */
+    public ConcurrentAutocomplete(Supplier<? extends Autocomplete> factory, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.factory = factory;
+        this.batchSize = batchSize;
+        this.snapshot = new Snapshot(List.of());
+    }
+
+    @Override
+    public synchronized void addAll(Collection<? extends CharSequence> terms) {
+        if (terms.isEmpty()) {
+            return;
+        }
+        List<Level> levels = new ArrayList<>(this.snapshot.levels);
+        List<CharSequence> batch = new ArrayList<>(terms);
+        if (!levels.isEmpty() && levels.get(levels.size() - 1).terms.size() < batchSize) {
+            batch = merged(levels.remove(levels.size() - 1), batch);
+        }
+        levels.add(level(batch));
+        // Merge the newest levels until each level is more than twice the size of the next
+        while (levels.size() >= 2) {
+            Level last = levels.get(levels.size() - 1);
+            Level previous = levels.get(levels.size() - 2);
+            if (previous.terms.size() > 2 * last.terms.size()) {
+                break;
+            }
+            levels.remove(levels.size() - 1);
+            List<CharSequence> merged = merged(previous, live(last.terms, last.removed));
+            levels.set(levels.size() - 1, level(merged));
+        }
+        this.snapshot = new Snapshot(levels);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<? extends CharSequence> terms) {
+        if (terms.isEmpty()) {
+            return;
+        }
+        NavigableSet<CharSequence> batch = new TreeSet<>(CharSequence::compare);
+        for (CharSequence term : terms) {
+            batch.add(term.toString());
+        }
+        List<Level> levels = new ArrayList<>(this.snapshot.levels);
+        for (int i = 0; i < levels.size(); i += 1) {
+            Level level = levels.get(i);
+            if (level.terms.size() < batchSize) {
+                // Small levels are cheaper to rebuild than to filter.
+                if (level.terms.stream().anyMatch(batch::contains)) {
+                    levels.set(i, level(live(live(level.terms, level.removed), batch)));
+                }
+            } else {
+                // Only terms stored in the level are tombstoned, so the ratio below counts real dead entries.
+                NavigableSet<CharSequence> removed = new TreeSet<>(CharSequence::compare);
+                removed.addAll(level.removed);
+                for (CharSequence term : batch) {
+                    if (level.contains(term)) {
+                        removed.add(term);
+                    }
+                }
+                if (removed.size() > level.removed.size()) {
+                    levels.set(i, new Level(level.index, level.terms, Collections.unmodifiableNavigableSet(removed)));
+                }
+            }
+        }
+        this.snapshot = new Snapshot(levels);
+        if (!compacting) {
+            for (Level level : levels) {
+                if (level.removed.size() > level.terms.size() * MAX_REMOVED_RATIO) {
+                    compacting = true;
+                    CompletableFuture.runAsync(() -> compact(level));
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<Level> levels = this.snapshot.levels;
+        if (levels.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (levels.size() == 1) {
+            Level level = levels.get(0);
+            List<CharSequence> matches = level.index.allMatches(prefix);
+            return level.hasRemoved(prefix) ? live(matches, level.removed) : matches;
+        }
+        List<Iterator<CharSequence>> sources = new ArrayList<>(levels.size());
+        for (Level level : levels) {
+            List<CharSequence> matches = level.index.allMatches(prefix);
+            sources.add((level.hasRemoved(prefix) ? live(matches, level.removed) : matches).iterator());
+        }
+        List<CharSequence> result = new ArrayList<>();
+        Iterator<CharSequence> matches = new MergeIterator(sources);
+        while (matches.hasNext()) {
+            result.add(matches.next());
+        }
+        return result;
+    }
+
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        List<Level> levels = this.snapshot.levels;
+        if (levels.size() == 1 && !levels.get(0).hasRemoved(prefix)) {
+            levels.get(0).index.allMatches(prefix, sink);
+        } else {
+            matches(prefix).forEach(sink);
+        }
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        List<Level> levels = this.snapshot.levels;
+        List<Iterator<CharSequence>> sources = new ArrayList<>(levels.size());
+        for (Level level : levels) {
+            Stream<CharSequence> matches = level.index.matches(prefix);
+            if (level.hasRemoved(prefix)) {
+                matches = matches.filter(term -> !level.removed.contains(term));
+            }
+            if (levels.size() == 1) {
+                return matches;
+            }
+            sources.add(matches.iterator());
+        }
+        Iterator<CharSequence> matches = new MergeIterator(sources);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(matches, Spliterator.ORDERED | Spliterator.NONNULL), false
+        );
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        int count = 0;
+        for (Level level : this.snapshot.levels) {
+            if (level.hasRemoved(prefix)) {
+                count += (int) level.index.matches(prefix).filter(term -> !level.removed.contains(term)).count();
+            } else {
+                count += level.index.countMatches(prefix);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the wrapped implementation matches prefixes, which is assumed when there are no levels yet.
+     */
+    @Override
+    public boolean matchesPrefixes() {
+        List<Level> levels = this.snapshot.levels;
+        return levels.isEmpty() || levels.get(0).index.matchesPrefixes();
+    }
+
+    /**
+     * Combines the stats of every level of the current snapshot, including terms hidden by tombstones until their level
+     * is rebuilt. The lists of terms kept for rebuilding each level are counted, but not the tombstones. Values are
+     * unknown if any level does not report them.
+     */
+    @Override
+    public StructureStats stats() {
+        long terms = 0;
+        long nodes = 0;
+        long bytes = 0;
+        long[] depths = new long[0];
+        for (Level level : this.snapshot.levels) {
+            StructureStats stats = level.index.stats();
+            terms = terms < 0 || stats.terms() < 0 ? -1 : terms + stats.terms();
+            nodes = nodes < 0 || stats.nodes() < 0 ? -1 : nodes + stats.nodes();
+            long termsBytes = StructureStats.arrayBytes(level.terms.size(), StructureStats.REFERENCE);
+            bytes = bytes < 0 || stats.estimatedBytes() < 0 ? -1 : bytes + stats.estimatedBytes() + termsBytes;
+            long[] levelDepths = stats.depths();
+            if (levelDepths.length > depths.length) {
+                depths = Arrays.copyOf(depths, levelDepths.length);
+            }
+            for (int d = 0; d < levelDepths.length; d += 1) {
+                depths[d] += levelDepths[d];
+            }
+        }
+        return new StructureStats(terms, nodes, bytes, depths);
+    }
+
+    /**
+     * Rebuilds the given level without its tombstoned terms, then publishes it unless the level was merged or replaced
+     * in the meantime. Tombstones recorded after the level was published are kept.
+     */
+    private void compact(Level base) {
+        try {
+            Level rebuilt = level(live(base.terms, base.removed));
+            synchronized (this) {
+                List<Level> levels = new ArrayList<>(this.snapshot.levels);
+                for (int i = 0; i < levels.size(); i += 1) {
+                    Level current = levels.get(i);
+                    if (current.index == base.index) {
+                        NavigableSet<CharSequence> removed = new TreeSet<>(CharSequence::compare);
+                        removed.addAll(current.removed);
+                        removed.removeAll(base.removed);
+                        levels.set(i, new Level(rebuilt.index, rebuilt.terms,
+                                Collections.unmodifiableNavigableSet(removed)));
+                        this.snapshot = new Snapshot(levels);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Returns a new list of the live terms of the given level followed by the given terms.
+     */
+    private static List<CharSequence> merged(Level level, List<CharSequence> terms) {
+        List<CharSequence> result = live(level.terms, level.removed);
+        result.addAll(terms);
+        return result;
+    }
+
+    /**
+     * Returns a new list of the given terms that are not in the given set.
+     */
+    private static List<CharSequence> live(List<CharSequence> terms, NavigableSet<CharSequence> removed) {
+        List<CharSequence> result = new ArrayList<>(terms.size());
+        for (CharSequence term : terms) {
+            if (!removed.contains(term)) {
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new level from the factory containing the given terms, kept in sorted order, and no tombstones.
+     */
+    private Level level(List<CharSequence> terms) {
+        CharSequence[] sorted = terms.toArray(new CharSequence[0]);
+        StringSorts.parallelSort(sorted);
+        Autocomplete index = factory.get();
+        if (sorted.length > 0) {
+            index.addAll(Arrays.asList(sorted));
+        }
+        return new Level(index, Collections.unmodifiableList(Arrays.asList(sorted)),
+                Collections.unmodifiableNavigableSet(new TreeSet<>(CharSequence::compare)));
+    }
+
+    /**
+     * An immutable list of levels, largest first. No level is modified after the snapshot is published.
+     */
+    private static class Snapshot {
+        private final List<Level> levels;
+
+        Snapshot(List<Level> levels) {
+            this.levels = Collections.unmodifiableList(levels);
+        }
+    }
+
+    /**
+     * An index along with the sorted terms it was built from and the terms removed from it since.
+     */
+    private static class Level {
+        private final Autocomplete index;
+        private final List<CharSequence> terms;
+        private final NavigableSet<CharSequence> removed;
+
+        Level(Autocomplete index, List<CharSequence> terms, NavigableSet<CharSequence> removed) {
+            this.index = index;
+            this.terms = terms;
+            this.removed = removed;
+        }
+
+        /**
+         * Returns true if any tombstoned term starts with the given prefix.
+         */
+        boolean hasRemoved(CharSequence prefix) {
+            if (prefix == null || removed.isEmpty()) {
+                return false;
+            }
+            CharSequence first = removed.ceiling(prefix);
+            return first != null && Autocomplete.isPrefixOf(prefix, first);
+        }
+
+        /**
+         * Returns true if the given term is stored in this level, whether or not it has been removed since.
+         */
+        boolean contains(CharSequence term) {
+            return Collections.binarySearch(terms, term, CharSequence::compare) >= 0;
+        }
+    }
+
+    /**
+     * Merges several sorted iterators into one sorted iterator, taking ties from the earliest. There are only
+     * O(log n) iterators, so each step scans the heads of all of them.
+     */
+    private static class MergeIterator implements Iterator<CharSequence> {
+        private final List<Iterator<CharSequence>> sources;
+        private final CharSequence[] heads;
+
+        MergeIterator(List<Iterator<CharSequence>> sources) {
+            this.sources = sources;
+            this.heads = new CharSequence[sources.size()];
+            for (int i = 0; i < heads.length; i += 1) {
+                heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (CharSequence head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public CharSequence next() {
+            int best = -1;
+            for (int i = 0; i < heads.length; i += 1) {
+                if (heads[i] != null && (best < 0 || CharSequence.compare(heads[i], heads[best]) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                throw new NoSuchElementException();
+            }
+            CharSequence result = heads[best];
+            heads[best] = sources.get(best).hasNext() ? sources.get(best).next() : null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package autocomplete;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative long values, such as query latencies in nanoseconds, with log-linear buckets in
+ * the style of HdrHistogram. Values below 64 are counted exactly; larger values share a bucket with the values that
+ * agree in their 6 most significant bits, so every value is reported within about 3% of its true value. Recording a
+ * value is a few atomic increments, so many threads can record into one histogram without blocking each other.
+ */
+public final class Histogram {
+    /**
+     * Each power of two above the exact range is split into 2^SUB_BUCKET_BITS buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Values below this are counted exactly.
+     */
+    private static final int EXACT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = EXACT + (Long.SIZE - 1 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public Histogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records one occurrence of the given value.
+     *
+     * @param value the value to record.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values, or 0 if there are none.
+     *
+     * @return the mean of the recorded values.
+     */
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the largest recorded value, or 0 if there are none.
+     *
+     * @return the largest recorded value.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns a value that at least the given percentage of recorded values do not exceed: the largest value in the
+     * bucket holding that percentile, capped at the largest recorded value. Returns 0 if there are no values.
+     *
+     * @param percentile percentage between 0 and 100.
+     * @return the value at the given percentile.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+     */
+    public long percentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            total += counts.get(i);
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns an independent copy of this histogram. Values recorded while copying may be only partly included.
+     *
+     * @return a copy of this histogram.
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram();
+        for (int i = 0; i < BUCKETS; i += 1) {
+            copy.counts.set(i, counts.get(i));
+        }
+        copy.count.set(count.get());
+        copy.sum.set(sum.get());
+        copy.max.set(max.get());
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{count=" + count() + ", mean=" + mean() + ", p50=" + percentile(50) + ", p99="
+                + percentile(99) + ", p99.9=" + percentile(99.9) + ", max=" + max() + "}";
+    }
+
+    /**
+     * Returns the bucket holding the given value.
+     */
+    private static int bucket(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        // value >>> shift keeps the SUB_BUCKET_BITS + 1 most significant bits, in [SUB_BUCKETS, EXACT).
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+        return EXACT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest value held by the given bucket.
+     */
+    private static long highest(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT) / SUB_BUCKETS + 1;
+        long top = (bucket - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,363 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link WeightedAutocomplete} that matches the query anywhere inside a term rather than only at its start, ignoring
+ * case, so that the query "york" matches "New York". The terms are folded to lower case and joined into one text
+ * separated by {@code '\0'}, and a generalized suffix array over that text finds every occurrence of the query with two
+ * binary searches. Each suffix is mapped back to the term that contains it, and terms are numbered in descending order
+ * of weight so that the matching term numbers, once de-duplicated, are already in weight order.
+ * <p>
+ * A segment tree over the term numbers of the sorted suffixes lets {@link #topMatches(CharSequence, int)} report the
+ * heaviest matches without visiting every occurrence. The index is rebuilt on the first query after terms are added or
+ * removed, so terms should be added in large batches. It is published as one immutable object, so any number of threads
+ * may query an instance while no thread modifies it.
+ *
+ * @see WeightedAutocomplete
+ * @see SuffixArrays
+ */
+public class InfixAutocomplete implements WeightedAutocomplete {
+    /**
+     * Separates consecutive terms in the text. Folded queries never contain it, so no match can span two terms.
+     */
+    private static final char SEPARATOR = '\0';
+    /**
+     * Weight of every term, in the order the terms were first added; guarded by this object's lock.
+     */
+    private final Map<String, Long> weights;
+    /**
+     * The index over the current terms, or null if terms have been added or removed since it was last built. Readers
+     * share one immutable index, so concurrent queries never see one that is partly built.
+     */
+    private volatile Index index;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public InfixAutocomplete() {
+        weights = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            add(term, 0);
+        }
+    }
+
+    @Override
+    public synchronized void add(CharSequence term, long weight) {
+        if (term == null || term.length() == 0) {
+            throw new IllegalArgumentException("calls add() with null or empty term");
+        }
+        weights.put(term.toString(), weight);
+        index = null;
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            if (term != null && weights.remove(term.toString()) != null) {
+                index = null;
+            }
+        }
+    }
+
+    /**
+     * Returns every term that contains the query, ignoring case, in descending order of weight.
+     *
+     * @param prefix search query.
+     * @return the terms that contain the query, heaviest first.
+     */
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        Index index = index();
+        int[] hits = hits(index, prefix);
+        List<CharSequence> result = new ArrayList<>(hits.length);
+        for (int t : hits) {
+            result.add(index.terms[t]);
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        Index index = index();
+        return Arrays.stream(hits(index, prefix)).mapToObj(t -> index.terms[t]);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        return hits(index(), prefix).length;
+    }
+
+    /**
+     * Returns false: matches contain the query anywhere, so they cannot be narrowed with
+     * {@link Autocomplete#isPrefixOf(CharSequence, CharSequence)}.
+     */
+    @Override
+    public boolean matchesPrefixes() {
+        return false;
+    }
+
+    /**
+     * Returns up to <i>k</i> terms that contain the query, ignoring case, in descending order of weight. Only the
+     * occurrences of the reported terms are visited, so short queries with many occurrences are still answered quickly.
+     *
+     * @param prefix search query.
+     * @param k      maximum number of terms to return.
+     * @return the heaviest <i>k</i> terms that contain the query, heaviest first.
+     */
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        List<CharSequence> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+        Index index = index();
+        int[] range = index.range(prefix);
+        if (range[0] >= range[1]) {
+            return result;
+        }
+        int[] owner = index.owner;
+        // Each entry is {start, end, position of the smallest term number in [start, end)}. Removing that position
+        // splits the range in two; a term that occurs more than once in the range is skipped after its first report.
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> Integer.compare(owner[a[2]], owner[b[2]]));
+        ranges.add(new int[]{range[0], range[1], index.heaviest(range[0], range[1])});
+        Set<Integer> reported = new HashSet<>();
+        while (!ranges.isEmpty() && result.size() < k) {
+            int[] next = ranges.remove();
+            int best = next[2];
+            if (reported.add(owner[best])) {
+                result.add(index.terms[owner[best]]);
+            }
+            if (next[0] < best) {
+                ranges.add(new int[]{next[0], best, index.heaviest(next[0], best)});
+            }
+            if (best + 1 < next[1]) {
+                ranges.add(new int[]{best + 1, next[1], index.heaviest(best + 1, next[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of terms in this index.
+     *
+     * @return the number of terms in this index.
+     */
+    public synchronized int size() {
+        return weights.size();
+    }
+
+    /**
+     * Reports the terms and the bytes of the weights, the generalized suffix array, and its segment tree,
+     * rebuilding the index first if needed. The segment tree is counted in bytes rather than as nodes.
+     */
+    @Override
+    public StructureStats stats() {
+        Index index = index();
+        // hash, key, value, next, before, and after fields of each map entry, and its boxed weight
+        long bytes = index.terms.length * (StructureStats.objectBytes(Integer.BYTES + 5 * StructureStats.REFERENCE)
+                + StructureStats.objectBytes(Long.BYTES));
+        // the map's hash table is kept at most 75% full
+        bytes += StructureStats.arrayBytes(Integer.highestOneBit(Math.max(1, index.terms.length * 4 / 3)) * 2L,
+                StructureStats.REFERENCE);
+        for (String term : index.terms) {
+            bytes += StructureStats.stringBytes(term);
+        }
+        bytes += StructureStats.arrayBytes(index.terms.length, StructureStats.REFERENCE)
+                + StructureStats.arrayBytes(index.text.length, Character.BYTES)
+                + StructureStats.arrayBytes(index.sa.length, Integer.BYTES)
+                + StructureStats.arrayBytes(index.owner.length, Integer.BYTES)
+                + StructureStats.arrayBytes(index.tree.length, Integer.BYTES);
+        return new StructureStats(index.terms.length, -1, bytes, new long[0]);
+    }
+
+    /**
+     * Returns the index over the current terms, building it first if terms have changed. Only one thread builds it;
+     * others wait for it and then share it.
+     */
+    private Index index() {
+        Index current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = new Index(weights);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the term numbers of every term that contains the query in increasing order. Only the occurrences are
+     * visited, so a query costs time proportional to its occurrences rather than to the number of terms.
+     */
+    private static int[] hits(Index index, CharSequence query) {
+        int[] range = index.range(query);
+        int[] hits = Arrays.copyOfRange(index.owner, range[0], range[1]);
+        Arrays.sort(hits);
+        int unique = 0;
+        for (int i = 0; i < hits.length; i += 1) {
+            if (unique == 0 || hits[i] != hits[unique - 1]) {
+                hits[unique] = hits[i];
+                unique += 1;
+            }
+        }
+        return unique == hits.length ? hits : Arrays.copyOf(hits, unique);
+    }
+
+    /**
+     * Immutable generalized suffix array over a snapshot of the terms.
+     */
+    private static final class Index {
+        /**
+         * Terms in descending order of weight: the term number of a term is its index in this array.
+         */
+        private final String[] terms;
+        /**
+         * Every term folded to lower case and followed by a separator, in term number order.
+         */
+        private final char[] text;
+        /**
+         * Suffix array of the text.
+         */
+        private final int[] sa;
+        /**
+         * owner[i] is the term number of the term containing suffix sa[i].
+         */
+        private final int[] owner;
+        /**
+         * tree[i] is the position in the suffix array with the smallest term number under segment tree node i;
+         * leaves are at sa.length + position.
+         */
+        private final int[] tree;
+
+        /**
+         * Numbers the terms by descending weight and builds the text, suffix array, owners, and segment tree.
+         */
+        Index(Map<String, Long> weights) {
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(weights.entrySet());
+            entries.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            terms = new String[entries.size()];
+            for (int t = 0; t < terms.length; t += 1) {
+                terms[t] = entries.get(t).getKey();
+            }
+
+            int length = 0;
+            for (String term : terms) {
+                length += term.length() + 1;
+            }
+            text = new char[length];
+            int[] starts = new int[terms.length + 1];
+            for (int t = 0, i = 0; t < terms.length; t += 1) {
+                starts[t] = i;
+                for (int j = 0; j < terms[t].length(); j += 1, i += 1) {
+                    text[i] = Character.toLowerCase(terms[t].charAt(j));
+                }
+                text[i] = SEPARATOR;
+                i += 1;
+            }
+            starts[terms.length] = length;
+
+            sa = SuffixArrays.suffixArray(new String(text));
+            // Suffixes of a term lie between its start and the start of the next term.
+            int[] termOf = new int[length];
+            for (int t = 0; t < terms.length; t += 1) {
+                Arrays.fill(termOf, starts[t], starts[t + 1], t);
+            }
+            int n = sa.length;
+            owner = new int[n];
+            tree = new int[2 * n];
+            for (int i = 0; i < n; i += 1) {
+                owner[i] = termOf[sa[i]];
+                tree[n + i] = i;
+            }
+            for (int i = n - 1; i > 0; i -= 1) {
+                int a = tree[2 * i];
+                int b = tree[2 * i + 1];
+                tree[i] = owner[b] < owner[a] ? b : a;
+            }
+        }
+
+        /**
+         * Returns the range [start, end) of the suffix array whose suffixes start with the folded query. Null, empty,
+         * and unmatchable queries have an empty range.
+         */
+        int[] range(CharSequence query) {
+            if (query == null || query.length() == 0) {
+                return new int[]{0, 0};
+            }
+            char[] folded = new char[query.length()];
+            for (int i = 0; i < folded.length; i += 1) {
+                folded[i] = Character.toLowerCase(query.charAt(i));
+                if (folded[i] == SEPARATOR) {
+                    return new int[]{0, 0};
+                }
+            }
+            return new int[]{bound(folded, false), bound(folded, true)};
+        }
+
+        /**
+         * Returns the first position in the suffix array whose suffix is not less than the query, or with
+         * {@code upper}, the first position whose suffix is greater than every string that starts with the query.
+         */
+        private int bound(char[] query, boolean upper) {
+            return SortedRuns.bound(0, sa.length, i -> precedes(sa[i], query, upper));
+        }
+
+        /**
+         * Returns true if the suffix starting at the given offset of the text belongs before the lower bound of the
+         * query, or with {@code upper}, before its upper bound.
+         */
+        private boolean precedes(int begin, char[] query, boolean upper) {
+            int m = Math.min(query.length, text.length - begin);
+            int k = 0;
+            while (k < m && query[k] == text[begin + k]) {
+                k += 1;
+            }
+            int cmp;
+            if (k == query.length) {
+                cmp = 0;
+            } else if (k == m) {
+                cmp = 1;
+            } else {
+                cmp = Character.compare(query[k], text[begin + k]);
+            }
+            return cmp > 0 || (upper && cmp == 0);
+        }
+
+        /**
+         * Returns the position in [start, end) of the suffix array whose suffix belongs to the heaviest term.
+         */
+        int heaviest(int start, int end) {
+            int n = sa.length;
+            int best = -1;
+            for (int lo = start + n, hi = end + n; lo < hi; lo >>>= 1, hi >>>= 1) {
+                if ((lo & 1) == 1) {
+                    best = best < 0 || owner[tree[lo]] < owner[best] ? tree[lo] : best;
+                    lo += 1;
+                }
+                if ((hi & 1) == 1) {
+                    hi -= 1;
+                    best = best < 0 || owner[tree[hi]] < owner[best] ? tree[hi] : best;
+                }
+            }
+            return best;
+        }
+    }
+}
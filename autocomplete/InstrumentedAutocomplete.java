@@ -0,0 +1,216 @@
+package autocomplete;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link Autocomplete} decorator that measures every query so that slow typeahead can be traced to its cause: a large
+ * result set shows up in the result counts, a degenerate tree in the nodes visited and the depth distribution of
+ * {@link #stats()}, and garbage collection in the collector time recorded alongside. Latencies, result counts, and
+ * nodes visited are recorded into lock-free {@link Histogram}s, so the decorator can be shared by concurrent readers
+ * whenever the wrapped implementation can. Measurements are read with {@link #snapshot()}.
+ * <p>
+ * Calls to {@link #allMatches(CharSequence)}, {@link #allMatches(CharSequence, Consumer)}, and
+ * {@link #countMatches(CharSequence)} are measured. Lazy {@link #matches(CharSequence)} streams and batch queries are
+ * passed through without being measured.
+ *
+ * @see Autocomplete
+ * @see CachingAutocomplete
+ */
+public class InstrumentedAutocomplete implements Autocomplete {
+    private final Autocomplete delegate;
+    private final Histogram latencies;
+    private final Histogram results;
+    private final Histogram nodes;
+
+    /**
+     * Constructs an instrumented view of the given implementation.
+     *
+     * @param delegate the wrapped {@link Autocomplete}.
+     */
+    public InstrumentedAutocomplete(Autocomplete delegate) {
+        this.delegate = delegate;
+        this.latencies = new Histogram();
+        this.results = new Histogram();
+        this.nodes = new Histogram();
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        delegate.addAll(terms);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        delegate.removeAll(terms);
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        long visited = delegate.nodesVisited();
+        long start = System.nanoTime();
+        List<CharSequence> matches = delegate.allMatches(prefix);
+        record(start, matches.size(), visited);
+        return matches;
+    }
+
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        long[] count = new long[1];
+        long visited = delegate.nodesVisited();
+        long start = System.nanoTime();
+        delegate.allMatches(prefix, term -> {
+            count[0] += 1;
+            sink.accept(term);
+        });
+        record(start, count[0], visited);
+    }
+
+    @Override
+    public List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        return delegate.allMatches(prefixes);
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        return delegate.matches(prefix);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        long visited = delegate.nodesVisited();
+        long start = System.nanoTime();
+        int count = delegate.countMatches(prefix);
+        record(start, count, visited);
+        return count;
+    }
+
+    @Override
+    public boolean matchesPrefixes() {
+        return delegate.matchesPrefixes();
+    }
+
+    @Override
+    public StructureStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public long nodesVisited() {
+        return delegate.nodesVisited();
+    }
+
+    /**
+     * Returns a copy of the measurements so far together with the current structure stats of the wrapped
+     * implementation. Computing the structure stats may walk the whole structure.
+     *
+     * @return the current measurements.
+     */
+    public Snapshot snapshot() {
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        return new Snapshot(latencies.copy(), results.copy(), nodes.copy(), delegate.stats(), gcCount, gcMillis);
+    }
+
+    /**
+     * Records a query that started at the given time and found the given number of matches, given the wrapped
+     * implementation's count of nodes visited before the query. The count is kept per thread, so the difference only
+     * includes the nodes visited by this query.
+     */
+    private void record(long start, long matches, long visitedBefore) {
+        latencies.record(System.nanoTime() - start);
+        results.record(matches);
+        nodes.record(Math.max(0, delegate.nodesVisited() - visitedBefore));
+    }
+
+    /**
+     * Measurements taken by {@link #snapshot()}.
+     */
+    public static final class Snapshot {
+        private final Histogram latencies;
+        private final Histogram results;
+        private final Histogram nodesVisited;
+        private final StructureStats structure;
+        private final long gcCount;
+        private final long gcMillis;
+
+        private Snapshot(Histogram latencies, Histogram results, Histogram nodesVisited, StructureStats structure,
+                         long gcCount, long gcMillis) {
+            this.latencies = latencies;
+            this.results = results;
+            this.nodesVisited = nodesVisited;
+            this.structure = structure;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * Returns the latency of each measured query in nanoseconds.
+         *
+         * @return the latency histogram.
+         */
+        public Histogram latencies() {
+            return latencies;
+        }
+
+        /**
+         * Returns the number of matches found by each measured query.
+         *
+         * @return the result count histogram.
+         */
+        public Histogram results() {
+            return results;
+        }
+
+        /**
+         * Returns the number of nodes visited by each measured query, which is always 0 for implementations that do
+         * not count them.
+         *
+         * @return the nodes visited histogram.
+         */
+        public Histogram nodesVisited() {
+            return nodesVisited;
+        }
+
+        /**
+         * Returns the structure stats of the wrapped implementation.
+         *
+         * @return the structure stats.
+         */
+        public StructureStats structure() {
+            return structure;
+        }
+
+        /**
+         * Returns the number of garbage collections in this JVM so far, to compare across snapshots.
+         *
+         * @return the total number of garbage collections.
+         */
+        public long gcCount() {
+            return gcCount;
+        }
+
+        /**
+         * Returns the time spent in garbage collection in this JVM so far in milliseconds, to compare across snapshots.
+         *
+         * @return the total garbage collection time.
+         */
+        public long gcMillis() {
+            return gcMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{latencies=" + latencies + ", results=" + results + ", nodesVisited=" + nodesVisited
+                    + ", structure=" + structure + ", gcCount=" + gcCount + ", gcMillis=" + gcMillis + "}";
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-only succinct trie implementation of the {@link Autocomplete} interface, built once from the sorted terms and
+ * encoded with the level-order unary degree sequence (LOUDS). The trie nodes are numbered in breadth-first order, so a
+ * node is represented only by its number: the shape of the trie is one bit vector holding each node's degree in unary,
+ * terminal nodes are marked in a second bit vector, and the first character of each node's edge is stored in a label
+ * array. When the terms use at most 256 distinct characters, each label is a one-byte index into the sorted alphabet,
+ * so a node costs about 11 bits in total. Rank and select directories over the bit vectors find the children of any
+ * node in constant time.
+ * <p>
+ * Each call to {@link #addAll(Collection)} rebuilds the whole trie from the existing and new terms, so terms should be
+ * added in one batch.
+ *
+ * @see Autocomplete
+ * @see RadixTreeAutocomplete
+ */
+public class LoudsAutocomplete implements Autocomplete {
+    /**
+     * Shape of the trie: "10" for a virtual super root, then for each node in breadth-first order, one 1 bit per child
+     * followed by a 0 bit. The children of node v are the nodes numbered [select0(v) - v, select0(v + 1) - v - 1).
+     */
+    private Bits louds;
+    /**
+     * Marks the nodes at which a term ends.
+     */
+    private Bits terminal;
+    /**
+     * Sorted distinct characters of every term, when there are at most 256 of them; otherwise null.
+     */
+    private char[] alphabet;
+    /**
+     * When the alphabet is not null, codes[v] is the index in the alphabet of the last character on the path to node v.
+     */
+    private byte[] codes;
+    /**
+     * When the alphabet is null, chars[v] is the last character on the path to node v.
+     */
+    private char[] chars;
+    /**
+     * Number of terms in this trie.
+     */
+    private int n;
+    /**
+     * Number of nodes visited by queries from each thread, updated once per query.
+     */
+    private final VisitCounter visited = new VisitCounter();
+
+    /**
+     * Constructs an empty instance.
+     */
+    public LoudsAutocomplete() {
+        build(new CharSequence[0]);
+    }
+
+    /**
+     * Rebuilds the trie from its existing terms and the given terms.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        List<CharSequence> all = new ArrayList<>(n + terms.size());
+        collect(0, new StringBuilder(), term -> all.add(term.toString()));
+        for (CharSequence term : terms) {
+            if (term == null || term.length() == 0) {
+                throw new IllegalArgumentException("calls addAll() with null or empty term");
+            }
+            all.add(term);
+        }
+        build(all.toArray(new CharSequence[0]));
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        allMatches(prefix, term -> result.add(term.toString()));
+        return result;
+    }
+
+    /**
+     * Passes each matching term to the sink as one reused {@link StringBuilder}, rewound and extended for each match.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        int v = find(prefix);
+        if (v > 0) {
+            visited.add(collect(v, new StringBuilder(prefix), sink));
+        }
+    }
+
+    /**
+     * Counts the terminal nodes in the subtree of the prefix one level at a time: the descendants of a node at each
+     * depth are a contiguous range of node numbers, so each level takes two select and two rank operations.
+     */
+    @Override
+    public int countMatches(CharSequence prefix) {
+        int lo = find(prefix);
+        if (lo <= 0) {
+            return 0;
+        }
+        int hi = lo + 1;
+        int count = 0;
+        while (lo < hi) {
+            count += terminal.rank1(hi) - terminal.rank1(lo);
+            lo = firstChild(lo);
+            hi = firstChild(hi);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of terms in this trie.
+     *
+     * @return the number of terms in this trie.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Counts the nodes and the lookup depth of every term, one level of the trie at a time. Retained bytes include the
+     * rank and select directories of both bit vectors.
+     */
+    @Override
+    public StructureStats stats() {
+        int nodes = alphabet == null ? chars.length : codes.length;
+        long bytes = louds.bytes() + terminal.bytes();
+        if (alphabet == null) {
+            bytes += StructureStats.arrayBytes(chars.length, Character.BYTES);
+        } else {
+            bytes += StructureStats.arrayBytes(alphabet.length, Character.BYTES)
+                    + StructureStats.arrayBytes(codes.length, Byte.BYTES);
+        }
+        long[] depths = new long[16];
+        int lo = 0;
+        int hi = 1;
+        for (int depth = 0; lo < hi; depth += 1) {
+            int count = terminal.rank1(hi) - terminal.rank1(lo);
+            if (depth >= depths.length) {
+                depths = Arrays.copyOf(depths, 2 * depths.length);
+            }
+            depths[depth] = count;
+            lo = firstChild(lo);
+            hi = firstChild(hi);
+        }
+        return new StructureStats(n, nodes, bytes, depths);
+    }
+
+    @Override
+    public long nodesVisited() {
+        return visited.get();
+    }
+
+    /**
+     * Returns the node reached by the given prefix, 0 for the root if the prefix is null or empty, or -1 if no term
+     * starts with the prefix.
+     */
+    private int find(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        int v = 0;
+        int d = 0;
+        while (d < prefix.length() && v >= 0) {
+            v = child(v, prefix.charAt(d));
+            d += 1;
+        }
+        visited.add(d);
+        return v;
+    }
+
+    /**
+     * Returns the number of the first child of node v, or of the first node after v's children if it has none.
+     */
+    private int firstChild(int v) {
+        return louds.select0(v) - v;
+    }
+
+    /**
+     * Returns the child of node v whose edge is labelled c, or -1 if there is none.
+     */
+    private int child(int v, char c) {
+        int lo = firstChild(v);
+        int hi = firstChild(v + 1);
+        int code = code(c);
+        if (code < 0) {
+            return -1;
+        }
+        // Children are numbered in sorted order of their labels.
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int label = label(mid);
+            if (label < code) {
+                lo = mid + 1;
+            } else if (label > code) {
+                hi = mid;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the stored label of the given character, or -1 if no edge can be labelled with it.
+     */
+    private int code(char c) {
+        if (alphabet == null) {
+            return c;
+        }
+        int i = Arrays.binarySearch(alphabet, c);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * Returns the stored label of node v.
+     */
+    private int label(int v) {
+        return alphabet == null ? chars[v] : codes[v] & 0xFF;
+    }
+
+    /**
+     * Passes every term in the subtree of node v to the sink in sorted order, where the term builder holds the path to
+     * v. Uses an explicit stack of nodes, their depths, and the positions of the 0 bits that precede their children,
+     * so deep tries cannot overflow the call stack. Siblings end their child lists at consecutive 0 bits, so a node's
+     * children need one select and then only short forward scans. Returns the number of nodes visited.
+     */
+    private int collect(int v, StringBuilder term, Consumer<? super CharSequence> sink) {
+        int[] nodes = new int[16];
+        int[] depths = new int[16];
+        int[] zeros = new int[16];
+        nodes[0] = v;
+        depths[0] = term.length();
+        zeros[0] = louds.select0(v);
+        int top = 1;
+        int popped = 0;
+        while (top > 0) {
+            top -= 1;
+            popped += 1;
+            int x = nodes[top];
+            int depth = depths[top];
+            int zero = zeros[top];
+            term.setLength(depth);
+            if (x != v) {
+                term.append(alphabet == null ? chars[x] : alphabet[codes[x] & 0xFF]);
+                depth += 1;
+            }
+            if (terminal.get(x)) {
+                sink.accept(term);
+            }
+            int first = zero - x;
+            int count = louds.nextZero(zero + 1) - zero - 1;
+            if (count == 0) {
+                continue;
+            }
+            if (top + count > nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(2 * nodes.length, top + count));
+                depths = Arrays.copyOf(depths, nodes.length);
+                zeros = Arrays.copyOf(zeros, nodes.length);
+            }
+            // Push the children in reverse so that the smallest label is popped first.
+            int position = louds.select0(first);
+            for (int i = count - 1; i >= 0; i -= 1) {
+                nodes[top + i] = first + count - 1 - i;
+            }
+            for (int i = count - 1; i >= 0; i -= 1) {
+                depths[top + i] = depth;
+                zeros[top + i] = position;
+                position = louds.nextZero(position + 1);
+            }
+            top += count;
+        }
+        return popped - 1;
+    }
+
+    /**
+     * Sorts and de-duplicates the terms and encodes their trie in breadth-first order. Each node is described by the
+     * range of sorted terms that pass through it, which is split wherever the LCP of neighbouring terms equals the
+     * node's depth to find its children.
+     */
+    private void build(CharSequence[] terms) {
+        // lcp[i] is the length of the common prefix of terms[i - 1] and terms[i], so equal neighbours and the
+        // boundaries between children are found without comparing characters again.
+        int[] lcp = StringSorts.lcpSort(terms);
+        int unique = 0;
+        for (int i = 0; i < terms.length; i += 1) {
+            if (unique == 0 || lcp[i] != terms[i].length() || lcp[i] != terms[unique - 1].length()) {
+                terms[unique] = terms[i];
+                lcp[unique] = lcp[i];
+                unique += 1;
+            }
+        }
+        n = unique;
+
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        int distinct = 0;
+        for (int i = 0; i < unique; i += 1) {
+            for (int j = 0; j < terms[i].length(); j += 1) {
+                char c = terms[i].charAt(j);
+                if (!present[c]) {
+                    present[c] = true;
+                    distinct += 1;
+                }
+            }
+        }
+        if (distinct <= 256) {
+            alphabet = new char[distinct];
+            for (int c = 0, i = 0; i < distinct; c += 1) {
+                if (present[c]) {
+                    alphabet[i] = (char) c;
+                    i += 1;
+                }
+            }
+        } else {
+            alphabet = null;
+        }
+
+        // Node v covers the sorted terms [lo[v], hi[v]), which all share their first depth[v] characters.
+        int[] lo = {0};
+        int[] hi = {unique};
+        int[] depth = {0};
+        char[] labels = new char[1];
+        int nodes = 1;
+        BitsBuilder shape = new BitsBuilder();
+        BitsBuilder ends = new BitsBuilder();
+        shape.append(true);
+        shape.append(false);
+        for (int v = 0; v < nodes; v += 1) {
+            int i = lo[v];
+            int d = depth[v];
+            boolean isTerm = i < hi[v] && terms[i].length() == d;
+            ends.append(isTerm);
+            if (isTerm) {
+                i += 1;
+            }
+            while (i < hi[v]) {
+                char c = terms[i].charAt(d);
+                int j = i + 1;
+                while (j < hi[v] && lcp[j] > d) {
+                    j += 1;
+                }
+                if (nodes == lo.length) {
+                    lo = Arrays.copyOf(lo, 2 * nodes);
+                    hi = Arrays.copyOf(hi, 2 * nodes);
+                    depth = Arrays.copyOf(depth, 2 * nodes);
+                    labels = Arrays.copyOf(labels, 2 * nodes);
+                }
+                lo[nodes] = i;
+                hi[nodes] = j;
+                depth[nodes] = d + 1;
+                labels[nodes] = c;
+                nodes += 1;
+                shape.append(true);
+                i = j;
+            }
+            shape.append(false);
+        }
+        louds = shape.build();
+        terminal = ends.build();
+        if (alphabet != null) {
+            codes = new byte[nodes];
+            for (int v = 1; v < nodes; v += 1) {
+                codes[v] = (byte) Arrays.binarySearch(alphabet, labels[v]);
+            }
+            chars = null;
+        } else {
+            chars = Arrays.copyOf(labels, nodes);
+            codes = null;
+        }
+    }
+
+    /**
+     * Appends bits to a growing array of words.
+     */
+    private static class BitsBuilder {
+        private long[] words = new long[16];
+        private int length;
+
+        void append(boolean bit) {
+            if (length == 64 * words.length) {
+                words = Arrays.copyOf(words, 2 * words.length);
+            }
+            if (bit) {
+                words[length >>> 6] |= 1L << length;
+            }
+            length += 1;
+        }
+
+        Bits build() {
+            return new Bits(Arrays.copyOf(words, (length + 63) >>> 6), length);
+        }
+    }
+
+    /**
+     * Immutable bit vector with rank and select directories. Ranks are stored once per 512-bit block, and the block
+     * holding every 512th 0 bit is sampled so that select scans only a few blocks.
+     */
+    private static class Bits {
+        private static final int BLOCK_WORDS = 8;
+        private static final int BLOCK_BITS = 64 * BLOCK_WORDS;
+        private final long[] words;
+        private final int length;
+        /**
+         * blockRanks[b] is the number of 1 bits before block b.
+         */
+        private final int[] blockRanks;
+        /**
+         * zeroSamples[s] is the block containing the (s * BLOCK_BITS)th 0 bit.
+         */
+        private final int[] zeroSamples;
+
+        Bits(long[] words, int length) {
+            this.words = words;
+            this.length = length;
+            int blocks = (words.length + BLOCK_WORDS - 1) / BLOCK_WORDS;
+            blockRanks = new int[blocks + 1];
+            for (int b = 0; b < blocks; b += 1) {
+                int ones = 0;
+                for (int w = b * BLOCK_WORDS; w < Math.min(words.length, (b + 1) * BLOCK_WORDS); w += 1) {
+                    ones += Long.bitCount(words[w]);
+                }
+                blockRanks[b + 1] = blockRanks[b] + ones;
+            }
+            int zeros = length - blockRanks[blocks];
+            zeroSamples = new int[zeros / BLOCK_BITS + 1];
+            for (int b = 0, s = 0; b < blocks && s < zeroSamples.length; b += 1) {
+                while (s < zeroSamples.length && (long) s * BLOCK_BITS < zerosBefore(b + 1)) {
+                    zeroSamples[s] = b;
+                    s += 1;
+                }
+            }
+        }
+
+        boolean get(int i) {
+            return (words[i >>> 6] & (1L << i)) != 0;
+        }
+
+        /**
+         * Returns the number of 1 bits in [0, i).
+         */
+        int rank1(int i) {
+            int w = i >>> 6;
+            int rank = blockRanks[w / BLOCK_WORDS];
+            for (int k = w - w % BLOCK_WORDS; k < w; k += 1) {
+                rank += Long.bitCount(words[k]);
+            }
+            if ((i & 63) != 0) {
+                rank += Long.bitCount(words[w] & (-1L >>> (64 - (i & 63))));
+            }
+            return rank;
+        }
+
+        /**
+         * Returns the position of the 0 bit with the given index, counting from 0, or the length of the vector if
+         * there are not that many 0 bits.
+         */
+        int select0(int k) {
+            int sample = k / BLOCK_BITS;
+            if (sample >= zeroSamples.length) {
+                return length;
+            }
+            int b = zeroSamples[sample];
+            int blocks = blockRanks.length - 1;
+            while (b + 1 < blocks && zerosBefore(b + 1) <= k) {
+                b += 1;
+            }
+            int remaining = k - zerosBefore(b);
+            for (int w = b * BLOCK_WORDS; w < words.length; w += 1) {
+                long zeros = ~words[w];
+                int count = Long.bitCount(zeros);
+                if (remaining < count) {
+                    // Skip whole bytes, then clear the lowest remaining bits one at a time.
+                    int shift = 0;
+                    for (int c = Long.bitCount(zeros & 0xFF); remaining >= c; c = Long.bitCount(zeros & 0xFF)) {
+                        remaining -= c;
+                        zeros >>>= 8;
+                        shift += 8;
+                    }
+                    for (int r = 0; r < remaining; r += 1) {
+                        zeros &= zeros - 1;
+                    }
+                    int position = 64 * w + shift + Long.numberOfTrailingZeros(zeros);
+                    return Math.min(position, length);
+                }
+                remaining -= count;
+            }
+            return length;
+        }
+
+        /**
+         * Returns the position of the first 0 bit at or after the given position, or the length of the vector if there
+         * is none.
+         */
+        int nextZero(int from) {
+            int w = from >>> 6;
+            if (w >= words.length) {
+                return length;
+            }
+            long zeros = ~words[w] & (-1L << from);
+            while (zeros == 0) {
+                w += 1;
+                if (w == words.length) {
+                    return length;
+                }
+                zeros = ~words[w];
+            }
+            return Math.min(64 * w + Long.numberOfTrailingZeros(zeros), length);
+        }
+
+        /**
+         * Returns the estimated number of bytes retained by this vector and its directories.
+         */
+        long bytes() {
+            // words, blockRanks, and zeroSamples references and the length field
+            return StructureStats.objectBytes(3 * StructureStats.REFERENCE + Integer.BYTES)
+                    + StructureStats.arrayBytes(words.length, Long.BYTES)
+                    + StructureStats.arrayBytes(blockRanks.length, Integer.BYTES)
+                    + StructureStats.arrayBytes(zeroSamples.length, Integer.BYTES);
+        }
+
+        /**
+         * Returns the number of 0 bits before block b.
+         */
+        private int zerosBefore(int b) {
+            return Math.min(b * BLOCK_BITS, length) - blockRanks[b];
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package autocomplete;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Read-only {@link WeightedAutocomplete} that answers queries directly from a memory-mapped index file, so reopening
+ * an index takes only as long as mapping the file. The file holds the sorted terms in one character arena with an
+ * offset table, their weights, and a max-weight segment tree over the sorted order for top-<i>k</i> queries:
+ * <pre>
+ * int magic, int version, int n, int arenaLength
+ * int[n + 1] offsets    start of each term in the arena
+ * long[n]    weights    weight of each term
+ * int[2n]    tree       tree[i] is the heaviest position under segment tree node i; leaves are at n + position
+ * char[arenaLength]     arena
+ * </pre>
+ * Matches are returned as {@link CharBuffer} views of the mapped arena rather than copies.
+ *
+ * @see WeightedAutocomplete
+ */
+public class MappedAutocomplete implements WeightedAutocomplete {
+    private static final int MAGIC = 0x41435458;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private final int n;
+    private final IntBuffer offsets;
+    private final LongBuffer weights;
+    private final IntBuffer tree;
+    private final CharBuffer arena;
+
+    /**
+     * Constructs an index over the given mapped file contents.
+     */
+    private MappedAutocomplete(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a MappedAutocomplete index");
+        }
+        this.n = buffer.getInt(8);
+        int arenaLength = buffer.getInt(12);
+        int position = HEADER_BYTES;
+        this.offsets = buffer.slice(position, (n + 1) * Integer.BYTES).asIntBuffer();
+        position += (n + 1) * Integer.BYTES;
+        this.weights = buffer.slice(position, n * Long.BYTES).asLongBuffer();
+        position += n * Long.BYTES;
+        this.tree = buffer.slice(position, 2 * n * Integer.BYTES).asIntBuffer();
+        position += 2 * n * Integer.BYTES;
+        this.arena = buffer.slice(position, arenaLength * Character.BYTES).asCharBuffer();
+    }
+
+    /**
+     * Maps the index file at the given path.
+     *
+     * @param path index file previously created by {@link #write(Path, Map)}.
+     * @return a read-only autocomplete backed by the mapped file.
+     * @throws IOException if the file cannot be mapped or is not an index file.
+     */
+    public static MappedAutocomplete open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedAutocomplete(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes an index file containing the given terms, each with a weight of 0.
+     *
+     * @param path  destination index file, which is replaced if it exists.
+     * @param terms terms to index.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, Collection<? extends CharSequence> terms) throws IOException {
+        Map<CharSequence, Long> weights = new LinkedHashMap<>();
+        for (CharSequence term : terms) {
+            weights.put(term.toString(), 0L);
+        }
+        write(path, weights);
+    }
+
+    /**
+     * Writes an index file containing every term in the given map with its associated weight. Keys with the same
+     * characters, such as a {@link String} and a {@link StringBuilder}, are written once with the larger weight.
+     *
+     * @param path  destination index file, which is replaced if it exists.
+     * @param terms map from each term to its weight.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, Map<? extends CharSequence, ? extends Number> terms) throws IOException {
+        CharSequence[] sorted = terms.keySet().toArray(new CharSequence[0]);
+        int[] lcp = StringSorts.lcpSort(sorted);
+        long[] weights = new long[sorted.length];
+        int n = 0;
+        long arenaLength = 0;
+        for (int i = 0; i < sorted.length; i += 1) {
+            long weight = terms.get(sorted[i]).longValue();
+            // A term is a duplicate of the last one kept if their common prefix is the whole of both.
+            if (n > 0 && lcp[i] == sorted[i].length() && lcp[i] == sorted[n - 1].length()) {
+                weights[n - 1] = Math.max(weights[n - 1], weight);
+            } else {
+                sorted[n] = sorted[i];
+                weights[n] = weight;
+                arenaLength += sorted[i].length();
+                n += 1;
+            }
+        }
+        long size = HEADER_BYTES + (long) (n + 1) * Integer.BYTES + (long) n * Long.BYTES
+                + 2L * n * Integer.BYTES + arenaLength * Character.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("index of " + size + " bytes is too large to map");
+        }
+
+        int[] tree = new int[2 * n];
+        for (int i = 0; i < n; i += 1) {
+            tree[n + i] = i;
+        }
+        for (int i = n - 1; i > 0; i -= 1) {
+            tree[i] = heavier(weights, tree[2 * i], tree[2 * i + 1]);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt((int) arenaLength);
+            int offset = 0;
+            for (int i = 0; i < n; i += 1) {
+                buffer.putInt(offset);
+                offset += sorted[i].length();
+            }
+            buffer.putInt(offset);
+            for (int i = 0; i < n; i += 1) {
+                buffer.putLong(weights[i]);
+            }
+            for (int node : tree) {
+                buffer.putInt(node);
+            }
+            for (int t = 0; t < n; t += 1) {
+                CharSequence term = sorted[t];
+                for (int i = 0; i < term.length(); i += 1) {
+                    buffer.putChar(term.charAt(i));
+                }
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Always throws, since the index file is read-only.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        throw new UnsupportedOperationException("MappedAutocomplete is read-only");
+    }
+
+    /**
+     * Always throws, since the index file is read-only.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void add(CharSequence term, long weight) {
+        throw new UnsupportedOperationException("MappedAutocomplete is read-only");
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        for (int i = bound(prefix, false), end = bound(prefix, true); i < end; i += 1) {
+            result.add(term(i));
+        }
+        return result;
+    }
+
+    /**
+     * Passes each matching term to the sink as one reused view of the mapped arena, repositioned for each match.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        CharBuffer view = arena.duplicate();
+        for (int i = bound(prefix, false), end = bound(prefix, true); i < end; i += 1) {
+            view.limit(offsets.get(i + 1)).position(offsets.get(i));
+            sink.accept(view);
+        }
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        return IntStream.range(bound(prefix, false), bound(prefix, true)).mapToObj(this::term);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        return bound(prefix, true) - bound(prefix, false);
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0 || k <= 0) {
+            return result;
+        }
+        int start = bound(prefix, false);
+        int end = bound(prefix, true);
+        if (start >= end) {
+            return result;
+        }
+        // Each entry is {start, end, heaviest position in [start, end)}; removing the heaviest position splits the
+        // range in two, so k results take O(k log n) time.
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> Long.compare(weights.get(b[2]), weights.get(a[2])));
+        ranges.add(new int[]{start, end, heaviest(start, end)});
+        while (!ranges.isEmpty() && result.size() < k) {
+            int[] range = ranges.remove();
+            int best = range[2];
+            result.add(term(best));
+            if (range[0] < best) {
+                ranges.add(new int[]{range[0], best, heaviest(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[]{best + 1, range[1], heaviest(best + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of terms in the index.
+     *
+     * @return the number of terms in the index.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Reports the terms and the size of the mapped index file, whose pages live in the page cache rather than on the
+     * heap.
+     */
+    @Override
+    public StructureStats stats() {
+        long bytes = HEADER_BYTES + (long) offsets.capacity() * Integer.BYTES + (long) weights.capacity() * Long.BYTES
+                + (long) tree.capacity() * Integer.BYTES + (long) arena.capacity() * Character.BYTES;
+        return new StructureStats(n, -1, bytes, new long[0]);
+    }
+
+    /**
+     * Returns a view of the term at the given sorted position.
+     */
+    private CharSequence term(int i) {
+        return arena.subSequence(offsets.get(i), offsets.get(i + 1));
+    }
+
+    /**
+     * Returns the heaviest position in [start, end) using the segment tree, preferring the earliest on ties.
+     */
+    private int heaviest(int start, int end) {
+        int best = -1;
+        for (int lo = start + n, hi = end + n; lo < hi; lo >>>= 1, hi >>>= 1) {
+            if ((lo & 1) == 1) {
+                best = best < 0 ? tree.get(lo) : heavier(best, tree.get(lo));
+                lo += 1;
+            }
+            if ((hi & 1) == 1) {
+                hi -= 1;
+                best = best < 0 ? tree.get(hi) : heavier(best, tree.get(hi));
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int i, int j) {
+        long a = weights.get(i);
+        long b = weights.get(j);
+        return a > b || (a == b && i < j) ? i : j;
+    }
+
+    private static int heavier(long[] weights, int i, int j) {
+        return weights[i] > weights[j] || (weights[i] == weights[j] && i < j) ? i : j;
+    }
+
+    /**
+     * Returns the first position whose term is not less than the prefix, or with {@code upper}, the first position
+     * whose term is greater than every string that starts with the prefix.
+     */
+    private int bound(CharSequence prefix, boolean upper) {
+        return SortedRuns.bound(0, n, i -> precedes(i, prefix, upper));
+    }
+
+    /**
+     * Returns true if the term at the given position belongs before the lower bound of the prefix, or with
+     * {@code upper}, before its upper bound.
+     */
+    private boolean precedes(int i, CharSequence prefix, boolean upper) {
+        int begin = offsets.get(i);
+        int length = offsets.get(i + 1) - begin;
+        int m = Math.min(prefix.length(), length);
+        int k = 0;
+        while (k < m && prefix.charAt(k) == arena.get(begin + k)) {
+            k += 1;
+        }
+        int cmp;
+        if (k == prefix.length()) {
+            cmp = 0;
+        } else if (k == length) {
+            cmp = 1;
+        } else {
+            cmp = Character.compare(prefix.charAt(k), arena.get(begin + k));
+        }
+        return cmp > 0 || (upper && cmp == 0);
+    }
+}
@@ -0,0 +1,464 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Ternary search tree (TST) implementation of the {@link Autocomplete} interface that stores its nodes in parallel
+ * primitive arrays instead of one object per node. Node <i>i</i> is described by {@code data[i]}, {@code left[i]},
+ * {@code mid[i]}, {@code right[i]} and bit <i>i</i> of {@code terms}, for about 14 bytes per node. Every operation is
+ * iterative, so arbitrarily long keys never overflow the stack.
+ *
+ * @see Autocomplete
+ * @see TernarySearchTreeAutocomplete
+ */
+public class PackedTernarySearchTreeAutocomplete implements Autocomplete {
+    /**
+     * Index representing a missing child. Index 0 is never used as a node so that new arrays need no filling.
+     */
+    private static final int NIL = 0;
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * The arrays are rebuilt once the number of removed terms exceeds this fraction of the remaining terms.
+     */
+    private static final double MAX_REMOVED_RATIO = 0.5;
+    /**
+     * The character stored in each node.
+     */
+    private char[] data;
+    /**
+     * The left, middle and right child of each node, or {@link #NIL}.
+     */
+    private int[] left;
+    private int[] mid;
+    private int[] right;
+    /**
+     * Nodes that represent the last character of an autocompletion term.
+     */
+    private final BitSet terms;
+    /**
+     * The overall root of the tree: the first character of the first autocompletion term added to this tree.
+     */
+    private int overallRoot;
+    /**
+     * Number of array slots in use, including the unused slot 0.
+     */
+    private int nodes;
+    /**
+     * Number of terms in this tree.
+     */
+    private int n;
+    /**
+     * Number of terms removed since the arrays were last rebuilt.
+     */
+    private int removed;
+    /**
+     * Number of nodes visited by lookups and queries from each thread, updated once per lookup and once per finished
+     * match iteration.
+     */
+    private final VisitCounter visited = new VisitCounter();
+
+    /**
+     * Constructs an empty instance.
+     */
+    public PackedTernarySearchTreeAutocomplete() {
+        this.data = new char[INITIAL_CAPACITY];
+        this.left = new int[INITIAL_CAPACITY];
+        this.mid = new int[INITIAL_CAPACITY];
+        this.right = new int[INITIAL_CAPACITY];
+        this.terms = new BitSet();
+        this.overallRoot = NIL;
+        this.nodes = 1;
+    }
+
+    /**
+     * Adds the given term to this tree.
+     *
+     * @param key term to be added.
+     * @throws IllegalArgumentException if the key is null or empty.
+     */
+    public void put(CharSequence key) {
+        if (key == null) {
+            throw new IllegalArgumentException("calls put() with null key");
+        }
+        if (key.length() == 0) {
+            throw new IllegalArgumentException("key must at least be length 1");
+        }
+        if (overallRoot == NIL) {
+            overallRoot = newNode(key.charAt(0));
+        }
+        int x = overallRoot;
+        int d = 0;
+        while (true) {
+            char c = key.charAt(d);
+            // Allocate before indexing into a child array, since newNode may replace the arrays.
+            if (c < data[x]) {
+                if (left[x] == NIL) {
+                    int y = newNode(c);
+                    left[x] = y;
+                }
+                x = left[x];
+            } else if (c > data[x]) {
+                if (right[x] == NIL) {
+                    int y = newNode(c);
+                    right[x] = y;
+                }
+                x = right[x];
+            } else if (d < key.length() - 1) {
+                d += 1;
+                if (mid[x] == NIL) {
+                    int y = newNode(key.charAt(d));
+                    mid[x] = y;
+                }
+                x = mid[x];
+            } else {
+                break;
+            }
+        }
+        if (!terms.get(x)) {
+            terms.set(x);
+            n += 1;
+        }
+    }
+
+    /**
+     * Returns true if the given term is in this tree.
+     *
+     * @param key term to look up.
+     * @return true if the given term is in this tree.
+     * @throws IllegalArgumentException if the key is null or empty.
+     */
+    public boolean contains(CharSequence key) {
+        if (key == null) {
+            throw new IllegalArgumentException("argument to contains() is null");
+        }
+        if (key.length() == 0) {
+            throw new IllegalArgumentException("key must at least be length 1");
+        }
+        int x = get(key);
+        return x != NIL && terms.get(x);
+    }
+
+    /**
+     * Returns the number of terms in this tree.
+     *
+     * @return the number of terms in this tree.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Adds all terms after sorting them once, inserting the median of each sorted range before either half so that
+     * sorted input does not degenerate into long left or right chains.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        CharSequence[] keys = terms.toArray(new CharSequence[0]);
+        for (CharSequence key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("calls put() with null key");
+            }
+        }
+        StringSorts.parallelSort(keys);
+        putMedians(keys, 0, keys.length);
+    }
+
+    /**
+     * Removes terms by clearing their bits in {@link #terms}, leaving their nodes in place as tombstones that queries
+     * walk past. Once enough terms have been removed, the arrays are rebuilt from the remaining terms.
+     */
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence key : terms) {
+            if (key == null) {
+                throw new IllegalArgumentException("calls remove() with null key");
+            }
+            if (key.length() == 0) {
+                continue;
+            }
+            int x = get(key);
+            if (x != NIL && this.terms.get(x)) {
+                this.terms.clear(x);
+                n -= 1;
+                removed += 1;
+            }
+        }
+        if (removed > n * MAX_REMOVED_RATIO) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuilds the arrays from the remaining terms, dropping every node that no longer leads to a term.
+     */
+    private void compact() {
+        CharSequence[] keys = new CharSequence[n];
+        Iterator<CharSequence> iterator = new MatchIterator("", false);
+        for (int i = 0; iterator.hasNext(); i += 1) {
+            keys[i] = iterator.next();
+        }
+        this.data = new char[INITIAL_CAPACITY];
+        this.left = new int[INITIAL_CAPACITY];
+        this.mid = new int[INITIAL_CAPACITY];
+        this.right = new int[INITIAL_CAPACITY];
+        this.terms.clear();
+        this.overallRoot = NIL;
+        this.nodes = 1;
+        this.n = 0;
+        this.removed = 0;
+        putMedians(keys, 0, keys.length);
+    }
+
+    /**
+     * Inserts the sorted keys in [lo, hi) median first. Recursion depth is logarithmic in the number of keys.
+     */
+    private void putMedians(CharSequence[] keys, int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        int median = (lo + hi) >>> 1;
+        put(keys[median]);
+        putMedians(keys, lo, median);
+        putMedians(keys, median + 1, hi);
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        Iterator<CharSequence> iterator = new MatchIterator(prefix, false);
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * Passes each matching term to the sink as a view of one reused buffer, so no strings are created.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        Iterator<CharSequence> iterator = new MatchIterator(prefix, true);
+        while (iterator.hasNext()) {
+            sink.accept(iterator.next());
+        }
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new MatchIterator(prefix, false), Spliterator.ORDERED | Spliterator.NONNULL
+        ), false);
+    }
+
+    /**
+     * Counts the live nodes and the lookup depth of every term, walking the tree from the root with an explicit stack.
+     * Retained bytes include the unused capacity of the arrays.
+     */
+    @Override
+    public StructureStats stats() {
+        long count = 0;
+        long[] depths = new long[16];
+        int[] stackNodes = new int[INITIAL_CAPACITY];
+        int[] stackDepths = new int[INITIAL_CAPACITY];
+        int size = 0;
+        if (overallRoot != NIL) {
+            stackNodes[0] = overallRoot;
+            stackDepths[0] = 1;
+            size = 1;
+        }
+        while (size > 0) {
+            size -= 1;
+            int x = stackNodes[size];
+            int depth = stackDepths[size];
+            count += 1;
+            if (terms.get(x)) {
+                depths = StructureStats.addDepth(depths, depth);
+            }
+            if (size + 3 > stackNodes.length) {
+                stackNodes = Arrays.copyOf(stackNodes, 2 * stackNodes.length);
+                stackDepths = Arrays.copyOf(stackDepths, stackNodes.length);
+            }
+            for (int k = 0; k < 3; k += 1) {
+                int child = k == 0 ? left[x] : k == 1 ? mid[x] : right[x];
+                if (child != NIL) {
+                    stackNodes[size] = child;
+                    stackDepths[size] = depth + 1;
+                    size += 1;
+                }
+            }
+        }
+        long bytes = StructureStats.arrayBytes(data.length, Character.BYTES)
+                + 3 * StructureStats.arrayBytes(left.length, Integer.BYTES)
+                + StructureStats.arrayBytes((terms.size() + 63) / 64, Long.BYTES);
+        return new StructureStats(n, count, bytes, depths);
+    }
+
+    @Override
+    public long nodesVisited() {
+        return visited.get();
+    }
+
+    /**
+     * Returns the node for the last character of the given key, or {@link #NIL} if the key is not a path in this tree.
+     *
+     * @param key non-empty key to look up.
+     * @return the node for the last character of the key, or {@link #NIL}.
+     */
+    private int get(CharSequence key) {
+        int x = overallRoot;
+        int d = 0;
+        int steps = 0;
+        while (x != NIL) {
+            steps += 1;
+            char c = key.charAt(d);
+            if (c < data[x]) {
+                x = left[x];
+            } else if (c > data[x]) {
+                x = right[x];
+            } else if (d < key.length() - 1) {
+                x = mid[x];
+                d += 1;
+            } else {
+                visited.add(steps);
+                return x;
+            }
+        }
+        visited.add(steps);
+        return NIL;
+    }
+
+    /**
+     * Appends a new node holding the given character, growing the arrays if needed.
+     *
+     * @param c character stored in the new node.
+     * @return the index of the new node.
+     */
+    private int newNode(char c) {
+        if (nodes == data.length) {
+            int capacity = data.length * 2;
+            data = Arrays.copyOf(data, capacity);
+            left = Arrays.copyOf(left, capacity);
+            mid = Arrays.copyOf(mid, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+        data[nodes] = c;
+        nodes += 1;
+        return nodes - 1;
+    }
+
+    /**
+     * Iterates over all keys with a given prefix in sorted order using an explicit stack of (node, depth) pairs. A
+     * negative node index on the stack means the node's own character is next, rather than its whole subtree.
+     */
+    private class MatchIterator implements Iterator<CharSequence> {
+        private int[] stackNodes;
+        private int[] stackDepths;
+        private int size;
+        private final StringBuilder key;
+        /**
+         * Whether to return the reused key buffer itself instead of a new string for each key.
+         */
+        private final boolean views;
+        private CharSequence next;
+        /**
+         * Nodes expanded so far, added to the tree's count once the iteration finishes.
+         */
+        private int expanded;
+
+        /**
+         * Constructs an iterator over the keys that start with the given prefix.
+         *
+         * @param prefix prefix shared by every key.
+         * @param views  true to return the reused key buffer, which changes on each call to {@link #hasNext()}.
+         */
+        MatchIterator(CharSequence prefix, boolean views) {
+            this.stackNodes = new int[INITIAL_CAPACITY];
+            this.stackDepths = new int[INITIAL_CAPACITY];
+            this.key = new StringBuilder(prefix);
+            this.views = views;
+            if (prefix.length() == 0) {
+                // Every key starts with the empty prefix.
+                push(overallRoot, 0);
+                return;
+            }
+            int x = get(prefix);
+            if (x != NIL) {
+                push(mid[x], prefix.length());
+                if (terms.get(x)) {
+                    next = views ? key : prefix.toString();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && size > 0) {
+                size -= 1;
+                int x = stackNodes[size];
+                int depth = stackDepths[size];
+                if (x < 0) {
+                    x = -x;
+                    key.setLength(depth);
+                    key.append(data[x]);
+                    if (terms.get(x)) {
+                        next = views ? key : key.toString();
+                    }
+                } else {
+                    expanded += 1;
+                    push(right[x], depth);
+                    push(mid[x], depth + 1);
+                    push(-x, depth);
+                    push(left[x], depth);
+                }
+            }
+            if (next == null && expanded > 0) {
+                visited.add(expanded);
+                expanded = 0;
+            }
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CharSequence result = next;
+            next = null;
+            return result;
+        }
+
+        private void push(int x, int depth) {
+            if (x == NIL) {
+                return;
+            }
+            if (size == stackNodes.length) {
+                stackNodes = Arrays.copyOf(stackNodes, size * 2);
+                stackDepths = Arrays.copyOf(stackDepths, size * 2);
+            }
+            stackNodes[size] = x;
+            stackDepths[size] = depth;
+            size += 1;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Support for answering many prefix queries at once. The prefixes are sorted once so that an implementation can
+ * answer them in a single left-to-right sweep over its sorted storage, resuming each search where the previous one
+ * ended. Large batches are split into chunks that are swept in parallel on the common fork-join pool.
+ *
+ * @see Autocomplete#allMatches(List)
+ */
+public final class PrefixBatches {
+    /**
+     * Batches of at least this many prefixes are split into chunks answered in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    /**
+     * Number of consecutive sorted prefixes swept by each parallel task.
+     */
+    private static final int CHUNK_SIZE = 1 << 10;
+
+    private PrefixBatches() {
+    }
+
+    /**
+     * Answers a range of sorted prefixes.
+     */
+    @FunctionalInterface
+    public interface Sweep {
+        /**
+         * Stores the matches of each of the sorted prefixes [from, to) at the same index of the results.
+         *
+         * @param prefixes non-null prefixes in sorted order.
+         * @param from     index of the first prefix to answer (inclusive).
+         * @param to       index of the last prefix to answer (exclusive).
+         * @param results  destination for the matches of each prefix.
+         */
+        void answer(CharSequence[] prefixes, int from, int to, List<List<CharSequence>> results);
+    }
+
+    /**
+     * Sorts the given prefixes, answers them with the given sweep, and returns the matches in the original order of
+     * the prefixes. Null prefixes have no matches.
+     *
+     * @param prefixes search queries.
+     * @param parallel true if the sweep may be run concurrently on disjoint ranges of prefixes.
+     * @param sweep    answers a range of sorted prefixes.
+     * @return the matches of each prefix, in the order of the given prefixes.
+     */
+    public static List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes, boolean parallel,
+                                                      Sweep sweep) {
+        Integer[] order = IntStream.range(0, prefixes.size())
+                .filter(i -> prefixes.get(i) != null)
+                .boxed()
+                .toArray(Integer[]::new);
+        Arrays.sort(order, (i, j) -> CharSequence.compare(prefixes.get(i), prefixes.get(j)));
+        CharSequence[] sorted = new CharSequence[order.length];
+        for (int k = 0; k < order.length; k += 1) {
+            sorted[k] = prefixes.get(order[k]);
+        }
+
+        List<List<CharSequence>> answers = new ArrayList<>(order.length);
+        for (int k = 0; k < order.length; k += 1) {
+            answers.add(null);
+        }
+        if (parallel && sorted.length >= PARALLEL_THRESHOLD) {
+            int chunks = (sorted.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, chunks).parallel().forEach(c -> sweep.answer(
+                    sorted, c * CHUNK_SIZE, Math.min(sorted.length, (c + 1) * CHUNK_SIZE), answers
+            ));
+        } else {
+            sweep.answer(sorted, 0, sorted.length, answers);
+        }
+
+        List<List<CharSequence>> results = new ArrayList<>(prefixes.size());
+        for (int i = 0; i < prefixes.size(); i += 1) {
+            results.add(null);
+        }
+        for (int k = 0; k < order.length; k += 1) {
+            results.set(order[k], answers.get(k));
+        }
+        for (int i = 0; i < prefixes.size(); i += 1) {
+            if (results.get(i) == null) {
+                results.set(i, new ArrayList<>());
+            }
+        }
+        return results;
+    }
+}
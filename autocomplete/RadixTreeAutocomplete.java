@@ -0,0 +1,477 @@
+package autocomplete;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Path-compressed radix tree (Patricia trie) implementation of the {@link Autocomplete} interface. Each unbranched
+ * chain of characters is a single edge whose label is an (offset, length) slice of one shared character arena, so a
+ * term costs one node at most instead of one node per character. Nodes with few children keep their first characters
+ * in a small sorted array searched by binary search; nodes with many children over a narrow range of characters switch
+ * to a direct table indexed by character.
+ *
+ * @see Autocomplete
+ * @see TernarySearchTreeAutocomplete
+ */
+public class RadixTreeAutocomplete implements Autocomplete {
+    /**
+     * Initial capacity of the arena in characters.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    /**
+     * Nodes with more children than this use a direct table if their children's first characters are close enough.
+     */
+    private static final int SPARSE_MAX = 8;
+    /**
+     * Largest range of first characters covered by a direct table.
+     */
+    private static final int DENSE_MAX_SPAN = 128;
+    /**
+     * The root, whose edge label is empty.
+     */
+    private final Node root;
+    /**
+     * Characters of every edge label. Splitting an edge only changes offsets, so characters are never moved or removed.
+     */
+    private char[] arena;
+    /**
+     * Number of characters used in the arena.
+     */
+    private int arenaLength;
+    /**
+     * Number of terms in this tree.
+     */
+    private int n;
+    /**
+     * Number of nodes visited by queries from each thread, updated once per query.
+     */
+    private final VisitCounter visited = new VisitCounter();
+
+    /**
+     * Constructs an empty instance.
+     */
+    public RadixTreeAutocomplete() {
+        root = new Node(0, 0);
+        arena = new char[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            add(term);
+        }
+    }
+
+    /**
+     * Adds the given term, splitting at most one edge and appending only the characters after the split to the arena.
+     *
+     * @param term term to be added.
+     * @throws IllegalArgumentException if the term is null or empty.
+     */
+    public void add(CharSequence term) {
+        if (term == null || term.length() == 0) {
+            throw new IllegalArgumentException("calls add() with null or empty term");
+        }
+        Node x = root;
+        int d = 0;
+        while (d < term.length()) {
+            char c = term.charAt(d);
+            Node child = x.child(c);
+            if (child == null) {
+                Node leaf = new Node(append(term, d), term.length() - d);
+                leaf.isTerm = true;
+                x.put(c, leaf);
+                n += 1;
+                return;
+            }
+            int k = mismatch(child, term, d);
+            if (k < child.length) {
+                // Split the edge: the new node keeps the shared part of the label and adopts the old child.
+                Node split = new Node(child.offset, k);
+                child.offset += k;
+                child.length -= k;
+                split.put(arena[child.offset], child);
+                x.put(c, split);
+                child = split;
+            }
+            x = child;
+            d += k;
+        }
+        if (!x.isTerm) {
+            x.isTerm = true;
+            n += 1;
+        }
+    }
+
+    /**
+     * Unmarks each removed term and prunes the nodes that no longer lead to any term. A node left with a single child
+     * is merged with it when the two labels are adjacent in the arena.
+     */
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        List<Node> path = new ArrayList<>();
+        for (CharSequence term : terms) {
+            if (term == null || term.length() == 0) {
+                continue;
+            }
+            path.clear();
+            Node x = root;
+            int d = 0;
+            while (x != null && d < term.length()) {
+                path.add(x);
+                x = x.child(term.charAt(d));
+                if (x != null) {
+                    int k = mismatch(x, term, d);
+                    d = k < x.length ? -1 : d + k;
+                    if (d < 0) {
+                        x = null;
+                    }
+                }
+            }
+            if (x == null || !x.isTerm) {
+                continue;
+            }
+            x.isTerm = false;
+            n -= 1;
+            for (int i = path.size() - 1; i >= 0 && !x.isTerm && x.size <= 1; i -= 1) {
+                Node parent = path.get(i);
+                char c = arena[x.offset];
+                if (x.size == 0) {
+                    parent.remove(c);
+                } else {
+                    Node only = x.first();
+                    if (x.offset + x.length != only.offset) {
+                        break;
+                    }
+                    only.offset = x.offset;
+                    only.length += x.length;
+                    parent.put(c, only);
+                }
+                x = parent;
+            }
+        }
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        collect(prefix, new StringBuilder(), term -> result.add(term.toString()));
+        return result;
+    }
+
+    /**
+     * Passes each matching term to the sink as one reused {@link StringBuilder}, rewound and extended for each match.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        collect(prefix, new StringBuilder(), sink);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        int[] count = new int[1];
+        collect(prefix, null, term -> count[0] += 1);
+        return count[0];
+    }
+
+    /**
+     * Returns the number of terms in this tree.
+     *
+     * @return the number of terms in this tree.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Finds the node whose path first covers the whole prefix and passes every term under it to the sink in sorted
+     * order, using an explicit stack so deep trees cannot overflow the call stack. If the builder is null, the sink
+     * receives null in place of each term.
+     */
+    private void collect(CharSequence prefix, StringBuilder term, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        Node x = root;
+        int d = 0;
+        int steps = 0;
+        while (d < prefix.length()) {
+            if (term != null) {
+                term.append(arena, x.offset, x.length);
+            }
+            x = x.child(prefix.charAt(d));
+            steps += 1;
+            if (x == null) {
+                visited.add(steps);
+                return;
+            }
+            int k = mismatch(x, prefix, d);
+            if (d + k < prefix.length() && k < x.length) {
+                visited.add(steps);
+                return;
+            }
+            d += k;
+        }
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Integer> lengths = new ArrayDeque<>();
+        nodes.push(x);
+        lengths.push(term == null ? 0 : term.length());
+        while (!nodes.isEmpty()) {
+            Node next = nodes.pop();
+            int length = lengths.pop();
+            if (term != null) {
+                term.setLength(length);
+                term.append(arena, next.offset, next.length);
+                length = term.length();
+            }
+            if (next.isTerm) {
+                sink.accept(term);
+            }
+            if (next.children != null) {
+                for (int i = next.children.length - 1; i >= 0; i -= 1) {
+                    if (next.children[i] != null) {
+                        nodes.push(next.children[i]);
+                        lengths.push(length);
+                    }
+                }
+            }
+            steps += 1;
+        }
+        visited.add(steps - 1);
+    }
+
+    /**
+     * Counts the nodes and the lookup depth of every term, where a term's lookup visits one node per edge on its path
+     * below the root. Retained bytes include the unused capacity of the arena and of each node's child arrays.
+     */
+    @Override
+    public StructureStats stats() {
+        long nodes = 0;
+        long bytes = StructureStats.arrayBytes(arena.length, Character.BYTES);
+        // offset, length, size, base, isTerm, and the keys and children references
+        long nodeBytes = StructureStats.objectBytes(3 * Integer.BYTES + Character.BYTES + 1
+                + 2 * StructureStats.REFERENCE);
+        long[] depths = new long[16];
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> stackDepths = new ArrayDeque<>();
+        stack.push(root);
+        stackDepths.push(0);
+        while (!stack.isEmpty()) {
+            Node x = stack.pop();
+            int depth = stackDepths.pop();
+            nodes += 1;
+            bytes += nodeBytes;
+            if (x.isTerm) {
+                depths = StructureStats.addDepth(depths, depth);
+            }
+            if (x.children != null) {
+                bytes += StructureStats.arrayBytes(x.children.length, StructureStats.REFERENCE);
+                if (x.keys != null) {
+                    bytes += StructureStats.arrayBytes(x.keys.length, Character.BYTES);
+                }
+                for (Node child : x.children) {
+                    if (child != null) {
+                        stack.push(child);
+                        stackDepths.push(depth + 1);
+                    }
+                }
+            }
+        }
+        return new StructureStats(n, nodes, bytes, depths);
+    }
+
+    @Override
+    public long nodesVisited() {
+        return visited.get();
+    }
+
+    /**
+     * Returns the number of leading characters of the child's edge label that match the term starting at index d.
+     */
+    private int mismatch(Node child, CharSequence term, int d) {
+        int m = Math.min(child.length, term.length() - d);
+        int k = 0;
+        while (k < m && arena[child.offset + k] == term.charAt(d + k)) {
+            k += 1;
+        }
+        return k;
+    }
+
+    /**
+     * Appends term[d, length) to the arena and returns its offset.
+     */
+    private int append(CharSequence term, int d) {
+        int length = term.length() - d;
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(2 * arena.length, arenaLength + length));
+        }
+        int offset = arenaLength;
+        for (int i = d; i < term.length(); i += 1) {
+            arena[arenaLength] = term.charAt(i);
+            arenaLength += 1;
+        }
+        return offset;
+    }
+
+    /**
+     * A node reached by an edge labelled with arena[offset, offset + length). Children are kept either sparse, with
+     * their first characters sorted in keys[0, size) and the children at the same indices, or dense, with keys null and
+     * the child for character c at children[c - base].
+     */
+    private static class Node {
+        private int offset;
+        private int length;
+        private boolean isTerm;
+        private char[] keys;
+        private Node[] children;
+        private char base;
+        private int size;
+
+        Node(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Returns the child whose edge label starts with c, or null if there is none.
+         */
+        Node child(char c) {
+            if (children == null) {
+                return null;
+            } else if (keys == null) {
+                int i = c - base;
+                return i >= 0 && i < children.length ? children[i] : null;
+            }
+            int i = Arrays.binarySearch(keys, 0, size, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        /**
+         * Returns the child with the smallest first character.
+         */
+        Node first() {
+            if (keys != null) {
+                return children[0];
+            }
+            for (Node child : children) {
+                if (child != null) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Adds or replaces the child whose edge label starts with c.
+         */
+        void put(char c, Node child) {
+            if (children == null) {
+                keys = new char[2];
+                children = new Node[2];
+            }
+            if (keys == null) {
+                int i = c - base;
+                if (i >= 0 && i < children.length) {
+                    if (children[i] == null) {
+                        size += 1;
+                    }
+                    children[i] = child;
+                    return;
+                }
+                int low = Math.min(c, base);
+                int high = Math.max(c, base + children.length - 1);
+                if (high - low + 1 > DENSE_MAX_SPAN) {
+                    toSparse();
+                } else {
+                    Node[] table = new Node[high - low + 1];
+                    System.arraycopy(children, 0, table, base - low, children.length);
+                    table[c - low] = child;
+                    children = table;
+                    base = (char) low;
+                    size += 1;
+                    return;
+                }
+            }
+            int i = Arrays.binarySearch(keys, 0, size, c);
+            if (i >= 0) {
+                children[i] = child;
+                return;
+            }
+            i = -(i + 1);
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                children = Arrays.copyOf(children, 2 * size);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(children, i, children, i + 1, size - i);
+            keys[i] = c;
+            children[i] = child;
+            size += 1;
+            if (size > SPARSE_MAX && keys[size - 1] - keys[0] < DENSE_MAX_SPAN) {
+                toDense();
+            }
+        }
+
+        /**
+         * Removes the child whose edge label starts with c, if any.
+         */
+        void remove(char c) {
+            if (children == null) {
+                return;
+            }
+            if (keys == null) {
+                int i = c - base;
+                if (i >= 0 && i < children.length && children[i] != null) {
+                    children[i] = null;
+                    size -= 1;
+                    if (size <= SPARSE_MAX / 2) {
+                        toSparse();
+                    }
+                }
+                return;
+            }
+            int i = Arrays.binarySearch(keys, 0, size, c);
+            if (i >= 0) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(children, i + 1, children, i, size - i - 1);
+                size -= 1;
+                children[size] = null;
+            }
+        }
+
+        /**
+         * Converts sorted children into a direct table over their range of first characters.
+         */
+        private void toDense() {
+            Node[] table = new Node[keys[size - 1] - keys[0] + 1];
+            for (int i = 0; i < size; i += 1) {
+                table[keys[i] - keys[0]] = children[i];
+            }
+            base = keys[0];
+            keys = null;
+            children = table;
+        }
+
+        /**
+         * Converts a direct table into sorted children.
+         */
+        private void toSparse() {
+            char[] sortedKeys = new char[Math.max(2, size)];
+            Node[] sortedChildren = new Node[sortedKeys.length];
+            for (int i = 0, j = 0; i < children.length; i += 1) {
+                if (children[i] != null) {
+                    sortedKeys[j] = (char) (base + i);
+                    sortedChildren[j] = children[i];
+                    j += 1;
+                }
+            }
+            keys = sortedKeys;
+            children = sortedChildren;
+        }
+    }
+}
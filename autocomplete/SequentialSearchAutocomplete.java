@@ -3,6 +3,10 @@ package autocomplete;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Sequential search implementation of the {@link Autocomplete} interface.
@@ -30,6 +34,13 @@ public class SequentialSearchAutocomplete implements Autocomplete {
         }
     }
 
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        Set<CharSequence> removed = new TreeSet<>(CharSequence::compare);
+        removed.addAll(terms);
+        this.terms.removeIf(removed::contains);
+    }
+
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
         List<CharSequence> output = new ArrayList<>();
@@ -46,4 +57,36 @@ public class SequentialSearchAutocomplete implements Autocomplete {
         return output;
         //throw new UnsupportedOperationException("Not implemented yet");
     }
+
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null) {
+            return;
+        }
+        for (CharSequence term : this.terms) {
+            if (Autocomplete.isPrefixOf(prefix, term)) {
+                sink.accept(term);
+            }
+        }
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null) {
+            return Stream.empty();
+        }
+        return this.terms.stream().filter(term -> Autocomplete.isPrefixOf(prefix, term));
+    }
+
+    /**
+     * Reports the terms and the bytes of the list holding them, which every query scans from start to end.
+     */
+    @Override
+    public StructureStats stats() {
+        long bytes = StructureStats.arrayBytes(terms.size(), StructureStats.REFERENCE);
+        for (CharSequence term : terms) {
+            bytes += StructureStats.stringBytes(term);
+        }
+        return new StructureStats(terms.size(), -1, bytes, new long[0]);
+    }
 }
@@ -0,0 +1,201 @@
+package autocomplete;
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Support for searching and merging sorted runs of terms. Each implementation stores its terms differently, so runs are
+ * described by positions: a search is given a predicate that tells whether the term at a position precedes the bound
+ * being searched for, and a merge is given an order over the heads of the runs.
+ *
+ * @see BinarySearchAutocomplete
+ * @see ArenaAutocomplete
+ * @see MappedAutocomplete
+ * @see InfixAutocomplete
+ */
+final class SortedRuns {
+    private SortedRuns() {
+    }
+
+    /**
+     * Compares the terms at positions of two runs.
+     */
+    @FunctionalInterface
+    interface Order {
+        /**
+         * Compares the term at position <i>i</i> of run <i>r</i> with the term at position <i>j</i> of run <i>s</i> in
+         * the same order as {@link CharSequence#compare(CharSequence, CharSequence)}.
+         */
+        int compare(int r, int i, int s, int j);
+    }
+
+    /**
+     * Returns the first position in [lo, hi) that does not precede the bound, or hi if every position does, given
+     * that the positions that precede it come first.
+     *
+     * @param lo       first position to search (inclusive).
+     * @param hi       last position to search (exclusive).
+     * @param precedes true for positions before the bound.
+     * @return the bounding position.
+     */
+    static int bound(int lo, int hi, IntPredicate precedes) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (precedes.test(mid)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the same position as {@link #bound(int, int, IntPredicate)} given that it is at least <i>from</i>.
+     * Probes from, from + 1, from + 3, from + 7, ... before binary searching, so a bound that is <i>g</i> positions
+     * ahead costs O(log g) comparisons.
+     *
+     * @param from     position known to be at or before the bound.
+     * @param hi       last position to search (exclusive).
+     * @param precedes true for positions before the bound.
+     * @return the bounding position.
+     */
+    static int gallop(int from, int hi, IntPredicate precedes) {
+        int lo = from;
+        int probe = from;
+        int step = 1;
+        while (probe < hi && precedes.test(probe)) {
+            lo = probe + 1;
+            probe += step;
+            step *= 2;
+        }
+        return bound(lo, Math.min(probe, hi), precedes);
+    }
+
+    /**
+     * Returns true if the term belongs before the lower bound of the prefix, or with {@code upper}, before its upper
+     * bound. Only the first <i>prefix length</i> characters of the term are compared.
+     *
+     * @param term   term to place.
+     * @param prefix search query.
+     * @param upper  true to place the term relative to the upper bound instead of the lower bound.
+     * @return true if the term precedes the bound.
+     */
+    static boolean precedes(CharSequence term, CharSequence prefix, boolean upper) {
+        int n = Math.min(prefix.length(), term.length());
+        int k = 0;
+        while (k < n && prefix.charAt(k) == term.charAt(k)) {
+            k += 1;
+        }
+        int cmp;
+        if (k == prefix.length()) {
+            cmp = 0;
+        } else if (k == term.length()) {
+            cmp = 1;
+        } else {
+            cmp = Character.compare(prefix.charAt(k), term.charAt(k));
+        }
+        return cmp > 0 || (upper && cmp == 0);
+    }
+
+    /**
+     * Returns the first of the given runs that must be merged with the newest so that every run is more than twice the
+     * size of the next. Merging the newest runs this way keeps O(log n) runs and merges each term O(log n) times.
+     *
+     * @param count number of runs, oldest and largest first.
+     * @param size  size of the run at each index.
+     * @return the index of the first run to merge, or count - 1 if the newest run is already small enough.
+     */
+    static int mergeStart(int count, IntUnaryOperator size) {
+        int first = count - 1;
+        int merged = size.applyAsInt(first);
+        while (first > 0 && size.applyAsInt(first - 1) <= 2 * merged) {
+            first -= 1;
+            merged += size.applyAsInt(first);
+        }
+        return first;
+    }
+
+    /**
+     * Iterates over the live positions in the ranges [lo[r], hi[r]) of every run in merged sorted order, taking ties
+     * from the older run. There are only O(log n) runs, so each step scans the heads of all of them.
+     */
+    static final class Cursor {
+        private final int[] positions;
+        private final int[] ends;
+        private final BitSet[] removed;
+        private final Order order;
+        private int position;
+
+        /**
+         * Constructs a cursor over the given ranges, which it advances in place.
+         *
+         * @param lo      first position of each run (inclusive).
+         * @param hi      last position of each run (exclusive).
+         * @param removed tombstones marking removed positions in each run.
+         * @param order   order over the terms in the runs.
+         */
+        Cursor(int[] lo, int[] hi, BitSet[] removed, Order order) {
+            this.positions = lo;
+            this.ends = hi;
+            this.removed = removed;
+            this.order = order;
+            for (int r = 0; r < positions.length; r += 1) {
+                skipRemoved(r);
+            }
+        }
+
+        /**
+         * Returns true if any run has a live position left.
+         */
+        boolean hasNext() {
+            for (int r = 0; r < positions.length; r += 1) {
+                if (positions[r] < ends[r]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Takes the smallest live head and returns its run; its position is then given by {@link #position()}.
+         *
+         * @return the run of the next term.
+         * @throws NoSuchElementException if every run is exhausted.
+         */
+        int next() {
+            int best = -1;
+            for (int r = 0; r < positions.length; r += 1) {
+                if (positions[r] < ends[r]
+                        && (best < 0 || order.compare(r, positions[r], best, positions[best]) < 0)) {
+                    best = r;
+                }
+            }
+            if (best < 0) {
+                throw new NoSuchElementException();
+            }
+            position = positions[best];
+            positions[best] += 1;
+            skipRemoved(best);
+            return best;
+        }
+
+        /**
+         * Returns the position in its run of the term last taken by {@link #next()}.
+         */
+        int position() {
+            return position;
+        }
+
+        /**
+         * Moves the position in the given run past any tombstones.
+         */
+        private void skipRemoved(int r) {
+            while (positions[r] < ends[r] && removed[r].get(positions[r])) {
+                positions[r] += 1;
+            }
+        }
+    }
+}
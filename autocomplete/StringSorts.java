@@ -0,0 +1,268 @@
+package autocomplete;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorting algorithms specialized for arrays of {@link CharSequence}, producing the same order as
+ * {@link CharSequence#compare(CharSequence, CharSequence)}. Unlike comparison sorts, these algorithms examine each
+ * character of a shared prefix once per partitioning step rather than once per comparison.
+ */
+public final class StringSorts {
+    /**
+     * Subarrays of at most this many elements are sorted with insertion sort.
+     */
+    private static final int INSERTION_SORT_CUTOFF = 16;
+    /**
+     * Subarrays of fewer than this many elements are sorted sequentially by {@link #parallelSort(CharSequence[])}.
+     */
+    private static final int PARALLEL_CUTOFF = 1 << 13;
+
+    private StringSorts() {
+    }
+
+    /**
+     * Sorts the given array using 3-way radix quicksort (multikey quicksort).
+     *
+     * @param a the array to sort.
+     */
+    public static void sort(CharSequence[] a) {
+        sort(a, 0, a.length, 0);
+    }
+
+    /**
+     * Sorts the given array using 3-way radix quicksort, sorting independent partitions in parallel on the common
+     * {@link ForkJoinPool}.
+     *
+     * @param a the array to sort.
+     */
+    public static void parallelSort(CharSequence[] a) {
+        if (a.length < PARALLEL_CUTOFF || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            sort(a);
+        } else {
+            ForkJoinPool.commonPool().invoke(new SortTask(a, 0, a.length, 0));
+        }
+    }
+
+    /**
+     * Sorts the given array with a stable LCP-aware merge sort and returns its LCP array: element <i>i</i> is the
+     * length of the longest common prefix of {@code a[i - 1]} and {@code a[i]}, and element 0 is 0. Each merge step
+     * knows how many leading characters the next candidates share with the last output, so characters of a common
+     * prefix are compared at most once per merge level.
+     *
+     * @param a the array to sort.
+     * @return the LCP array of the sorted array.
+     */
+    public static int[] lcpSort(CharSequence[] a) {
+        int[] lcp = new int[a.length];
+        if (a.length > 1) {
+            lcpSort(a, lcp, new CharSequence[a.length], new int[a.length], 0, a.length);
+            lcp[0] = 0;
+        }
+        return lcp;
+    }
+
+    /**
+     * Sorts a[lo, hi) and sets lcp[i] to the LCP of a[i - 1] and a[i] for lo &lt; i &lt; hi.
+     */
+    private static void lcpSort(CharSequence[] a, int[] lcp, CharSequence[] aux, int[] auxLcp, int lo, int hi) {
+        if (hi - lo <= INSERTION_SORT_CUTOFF) {
+            insertionSort(a, lo, hi, 0);
+            for (int i = lo + 1; i < hi; i += 1) {
+                lcp[i] = mismatch(a[i - 1], a[i], 0);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        lcpSort(a, lcp, aux, auxLcp, lo, mid);
+        lcpSort(a, lcp, aux, auxLcp, mid, hi);
+        System.arraycopy(a, lo, aux, lo, hi - lo);
+        System.arraycopy(lcp, lo, auxLcp, lo, hi - lo);
+
+        // hI and hJ are the LCPs of the heads of each run with the last element written to a.
+        int i = lo;
+        int j = mid;
+        int hI = 0;
+        int hJ = 0;
+        for (int k = lo; k < hi; k += 1) {
+            boolean takeLeft;
+            if (i == mid) {
+                takeLeft = false;
+            } else if (j == hi) {
+                takeLeft = true;
+            } else if (hI != hJ) {
+                // The head sharing more with the last output is the smaller one.
+                takeLeft = hI > hJ;
+            } else {
+                // Both heads share hI characters with the last output, so compare them from there; the head left
+                // behind then shares m characters with the new last output.
+                int m = mismatch(aux[i], aux[j], hI);
+                takeLeft = m == aux[i].length() || (m < aux[j].length() && aux[i].charAt(m) < aux[j].charAt(m));
+                if (takeLeft) {
+                    hJ = m;
+                } else {
+                    hI = m;
+                }
+            }
+            if (takeLeft) {
+                a[k] = aux[i];
+                lcp[k] = hI;
+                i += 1;
+                hI = i < mid ? auxLcp[i] : 0;
+            } else {
+                a[k] = aux[j];
+                lcp[k] = hJ;
+                j += 1;
+                hJ = j < hi ? auxLcp[j] : 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the first index at or after <i>d</i> where the two sequences differ, or the length of the shorter one.
+     */
+    private static int mismatch(CharSequence v, CharSequence w, int d) {
+        int n = Math.min(v.length(), w.length());
+        int i = d;
+        while (i < n && v.charAt(i) == w.charAt(i)) {
+            i += 1;
+        }
+        return i;
+    }
+
+    /**
+     * Sorts a[lo, hi), all of which share their first <i>d</i> characters. Recurses on the two smaller partitions and
+     * loops on the largest so that the recursion depth stays logarithmic even for very long shared prefixes.
+     */
+    private static void sort(CharSequence[] a, int lo, int hi, int d) {
+        while (hi - lo > INSERTION_SORT_CUTOFF) {
+            int[] bounds = partition(a, lo, hi, d);
+            int lt = bounds[0];
+            int gt = bounds[1];
+            // Strings that ended at position d are all equal, so the middle partition only needs sorting otherwise.
+            boolean ended = charAt(a[lt], d) < 0;
+            int lessSize = lt - lo;
+            int equalSize = ended ? 0 : gt - lt;
+            int greaterSize = hi - gt;
+            if (lessSize >= equalSize && lessSize >= greaterSize) {
+                if (!ended) {
+                    sort(a, lt, gt, d + 1);
+                }
+                sort(a, gt, hi, d);
+                hi = lt;
+            } else if (greaterSize >= equalSize) {
+                sort(a, lo, lt, d);
+                if (!ended) {
+                    sort(a, lt, gt, d + 1);
+                }
+                lo = gt;
+            } else {
+                sort(a, lo, lt, d);
+                sort(a, gt, hi, d);
+                lo = lt;
+                hi = gt;
+                d += 1;
+            }
+        }
+        insertionSort(a, lo, hi, d);
+    }
+
+    /**
+     * Partitions a[lo, hi) around the character at position <i>d</i> of its middle element and returns the bounds
+     * {lt, gt} such that a[lo, lt) is less, a[lt, gt) is equal, and a[gt, hi) is greater.
+     */
+    private static int[] partition(CharSequence[] a, int lo, int hi, int d) {
+        swap(a, lo, (lo + hi) >>> 1);
+        int v = charAt(a[lo], d);
+        int lt = lo;
+        int gt = hi - 1;
+        int i = lo + 1;
+        while (i <= gt) {
+            int t = charAt(a[i], d);
+            if (t < v) {
+                swap(a, lt, i);
+                lt += 1;
+                i += 1;
+            } else if (t > v) {
+                swap(a, i, gt);
+                gt -= 1;
+            } else {
+                i += 1;
+            }
+        }
+        return new int[]{lt, gt + 1};
+    }
+
+    /**
+     * Sorts a[lo, hi), all of which share their first <i>d</i> characters, with insertion sort.
+     */
+    private static void insertionSort(CharSequence[] a, int lo, int hi, int d) {
+        for (int i = lo + 1; i < hi; i += 1) {
+            for (int j = i; j > lo && less(a[j], a[j - 1], d); j -= 1) {
+                swap(a, j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns true if v is less than w, given that both share their first <i>d</i> characters.
+     */
+    private static boolean less(CharSequence v, CharSequence w, int d) {
+        int n = Math.min(v.length(), w.length());
+        for (int i = d; i < n; i += 1) {
+            char x = v.charAt(i);
+            char y = w.charAt(i);
+            if (x != y) {
+                return x < y;
+            }
+        }
+        return v.length() < w.length();
+    }
+
+    /**
+     * Returns the character at position <i>d</i>, or -1 if the sequence has ended.
+     */
+    private static int charAt(CharSequence s, int d) {
+        return d < s.length() ? s.charAt(d) : -1;
+    }
+
+    private static void swap(CharSequence[] a, int i, int j) {
+        CharSequence temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    /**
+     * Sorts a[lo, hi) by partitioning once and then sorting the three partitions as independent subtasks.
+     */
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CharSequence[] a;
+        private final int lo;
+        private final int hi;
+        private final int d;
+
+        SortTask(CharSequence[] a, int lo, int hi, int d) {
+            this.a = a;
+            this.lo = lo;
+            this.hi = hi;
+            this.d = d;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo < PARALLEL_CUTOFF) {
+                sort(a, lo, hi, d);
+                return;
+            }
+            int[] bounds = partition(a, lo, hi, d);
+            int lt = bounds[0];
+            int gt = bounds[1];
+            if (charAt(a[lt], d) < 0) {
+                invokeAll(new SortTask(a, lo, lt, d), new SortTask(a, gt, hi, d));
+            } else {
+                invokeAll(new SortTask(a, lo, lt, d), new SortTask(a, lt, gt, d + 1), new SortTask(a, gt, hi, d));
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package autocomplete;
+
+import java.util.Arrays;
+
+/**
+ * Size and shape of an {@link Autocomplete} data structure, as reported by {@link Autocomplete#stats()}. Values that an
+ * implementation does not track are -1. Retained bytes are estimated for a 64-bit JVM with compressed references: a
+ * 12-byte object header, 4-byte references, 16-byte array headers, and objects padded to a multiple of 8 bytes.
+ */
+public final class StructureStats {
+    /**
+     * Stats of an implementation that does not track its structure.
+     */
+    public static final StructureStats UNKNOWN = new StructureStats(-1, -1, -1, new long[0]);
+    static final int OBJECT_HEADER = 12;
+    /**
+     * Estimated size of a reference field in bytes.
+     */
+    public static final int REFERENCE = 4;
+    static final int ARRAY_HEADER = 16;
+    private final long terms;
+    private final long nodes;
+    private final long estimatedBytes;
+    private final long[] depths;
+
+    /**
+     * Constructs stats with the given values.
+     *
+     * @param terms          number of terms, or -1 if unknown.
+     * @param nodes          number of nodes, or -1 if the structure has no nodes or does not count them.
+     * @param estimatedBytes estimated bytes retained by the structure, or -1 if unknown.
+     * @param depths         depths[d] is the number of terms whose lookup visits d nodes; empty if unknown. Trailing
+     *                       zeros are dropped.
+     */
+    public StructureStats(long terms, long nodes, long estimatedBytes, long[] depths) {
+        this.terms = terms;
+        this.nodes = nodes;
+        this.estimatedBytes = estimatedBytes;
+        int length = depths.length;
+        while (length > 0 && depths[length - 1] == 0) {
+            length -= 1;
+        }
+        this.depths = Arrays.copyOf(depths, length);
+    }
+
+    /**
+     * Returns the number of terms, or -1 if unknown.
+     *
+     * @return the number of terms.
+     */
+    public long terms() {
+        return terms;
+    }
+
+    /**
+     * Returns the number of nodes, or -1 if the structure has no nodes or does not count them.
+     *
+     * @return the number of nodes.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the structure, or -1 if unknown.
+     *
+     * @return the estimated retained bytes.
+     */
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Returns the distribution of lookup depths: element <i>d</i> is the number of terms whose lookup visits <i>d</i>
+     * nodes. A depth far above the term length points to a degenerate tree. Empty if unknown.
+     *
+     * @return the distribution of lookup depths.
+     */
+    public long[] depths() {
+        return depths.clone();
+    }
+
+    /**
+     * Returns the largest lookup depth, or -1 if unknown.
+     *
+     * @return the largest lookup depth.
+     */
+    public int maxDepth() {
+        for (int d = depths.length - 1; d >= 0; d -= 1) {
+            if (depths[d] > 0) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the mean lookup depth, or -1 if unknown.
+     *
+     * @return the mean lookup depth.
+     */
+    public double meanDepth() {
+        long count = 0;
+        long sum = 0;
+        for (int d = 0; d < depths.length; d += 1) {
+            count += depths[d];
+            sum += d * depths[d];
+        }
+        return count == 0 ? -1 : (double) sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "StructureStats{terms=" + terms + ", nodes=" + nodes + ", estimatedBytes=" + estimatedBytes
+                + ", meanDepth=" + meanDepth() + ", maxDepth=" + maxDepth() + "}";
+    }
+
+    /**
+     * Returns the estimated size of an object with the given total size of fields.
+     *
+     * @param fieldBytes total size of the object's fields in bytes.
+     * @return the estimated size of the object in bytes.
+     */
+    public static long objectBytes(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * Returns the estimated size of an array with the given length and element size.
+     *
+     * @param length       number of elements.
+     * @param elementBytes size of each element in bytes.
+     * @return the estimated size of the array in bytes.
+     */
+    public static long arrayBytes(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * Returns the estimated size of a string with the given contents, which is stored with one byte per character if
+     * every character is Latin-1.
+     */
+    static long stringBytes(CharSequence s) {
+        int elementBytes = 1;
+        for (int i = 0; i < s.length() && elementBytes == 1; i += 1) {
+            if (s.charAt(i) > 0xFF) {
+                elementBytes = 2;
+            }
+        }
+        // value reference, hash, coder, and hashIsZero fields
+        return objectBytes(REFERENCE + Integer.BYTES + 2) + arrayBytes(s.length(), elementBytes);
+    }
+
+    /**
+     * Counts one more term at the given depth, growing the distribution if needed, and returns the distribution.
+     */
+    static long[] addDepth(long[] depths, int depth) {
+        if (depth >= depths.length) {
+            depths = Arrays.copyOf(depths, Math.max(2 * depths.length, depth + 1));
+        }
+        depths[depth] += 1;
+        return depths;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,208 @@
+package autocomplete;
+
+import java.util.Arrays;
+
+/**
+ * Linear-time suffix array and longest common prefix (LCP) array construction for any {@link CharSequence}.
+ * Suffixes are ordered by {@link CharSequence#compare(CharSequence, CharSequence)}, so a shorter suffix that is a
+ * prefix of a longer one sorts first.
+ */
+public final class SuffixArrays {
+    private SuffixArrays() {
+    }
+
+    /**
+     * Returns the suffix array of the given text: the starting index of every non-empty suffix in sorted order. Built
+     * with the SA-IS induced sorting algorithm in linear time.
+     *
+     * @param text the text to index.
+     * @return the suffix array of the text.
+     */
+    public static int[] suffixArray(CharSequence text) {
+        // Map each character onto its rank among the distinct characters so the alphabet is dense.
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < text.length(); i += 1) {
+            present[text.charAt(i)] = true;
+        }
+        int[] rank = new int[Character.MAX_VALUE + 1];
+        int upper = -1;
+        for (int c = 0; c <= Character.MAX_VALUE; c += 1) {
+            if (present[c]) {
+                upper += 1;
+                rank[c] = upper;
+            }
+        }
+        int[] s = new int[text.length()];
+        for (int i = 0; i < s.length; i += 1) {
+            s[i] = rank[text.charAt(i)];
+        }
+        return suffixArray(s, Math.max(upper, 0));
+    }
+
+    /**
+     * Returns the suffix array of the given integer text whose values all lie in [0, upper].
+     *
+     * @param s     the text to index.
+     * @param upper the largest value in the text.
+     * @return the suffix array of the text.
+     */
+    public static int[] suffixArray(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        } else if (n == 1) {
+            return new int[]{0};
+        } else if (n == 2) {
+            return s[0] < s[1] ? new int[]{0, 1} : new int[]{1, 0};
+        }
+        int[] sa = new int[n];
+        // ls[i] is true if suffix i is S-type (smaller than suffix i + 1).
+        boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i -= 1) {
+            ls[i] = (s[i] == s[i + 1]) ? ls[i + 1] : (s[i] < s[i + 1]);
+        }
+        // Bucket boundaries: sumL[c] is the start of bucket c, sumS[c] is the start of its S-type part.
+        int[] sumL = new int[upper + 1];
+        int[] sumS = new int[upper + 1];
+        for (int i = 0; i < n; i += 1) {
+            // An S-type suffix never starts with the largest value, so s[i] + 1 stays in range.
+            if (!ls[i]) {
+                sumS[s[i]] += 1;
+            } else {
+                sumL[s[i] + 1] += 1;
+            }
+        }
+        for (int i = 0; i <= upper; i += 1) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i += 1) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m;
+                m += 1;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, j = 0; i < n; i += 1) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[j] = i;
+                j += 1;
+            }
+        }
+        induce(s, upper, sa, ls, sumL, sumS, lms);
+
+        if (m > 0) {
+            // Name the sorted LMS substrings and recursively sort the reduced problem.
+            int[] sortedLms = new int[m];
+            for (int i = 0, j = 0; i < n; i += 1) {
+                if (lmsMap[sa[i]] != -1) {
+                    sortedLms[j] = sa[i];
+                    j += 1;
+                }
+            }
+            int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i += 1) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = (lmsMap[l] + 1 < m) ? lms[lmsMap[l] + 1] : n;
+                int endR = (lmsMap[r] + 1 < m) ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l += 1;
+                        r += 1;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    recUpper += 1;
+                }
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+            int[] recSa = suffixArray(recS, recUpper);
+            for (int i = 0; i < m; i += 1) {
+                sortedLms[i] = lms[recSa[i]];
+            }
+            induce(s, upper, sa, ls, sumL, sumS, sortedLms);
+        }
+        return sa;
+    }
+
+    /**
+     * Induces the order of all L-type and S-type suffixes from the given order of LMS suffixes.
+     */
+    private static void induce(int[] s, int upper, int[] sa, boolean[] ls, int[] sumL, int[] sumS, int[] lms) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        int[] buf = Arrays.copyOf(sumS, upper + 1);
+        for (int d : lms) {
+            if (d != n) {
+                sa[buf[s[d]]] = d;
+                buf[s[d]] += 1;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        sa[buf[s[n - 1]]] = n - 1;
+        buf[s[n - 1]] += 1;
+        for (int i = 0; i < n; i += 1) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]] = v - 1;
+                buf[s[v - 1]] += 1;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        for (int i = n - 1; i >= 0; i -= 1) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                buf[s[v - 1] + 1] -= 1;
+                sa[buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the LCP array of the given text and its suffix array using Kasai's algorithm: element <i>i</i> is the
+     * length of the longest common prefix of suffixes {@code sa[i - 1]} and {@code sa[i]}, and element 0 is 0.
+     *
+     * @param text the indexed text.
+     * @param sa   the suffix array of the text.
+     * @return the LCP array of the text.
+     */
+    public static int[] lcpArray(CharSequence text, int[] sa) {
+        int n = sa.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (h > 0) {
+                h -= 1;
+            }
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && text.charAt(i + h) == text.charAt(j + h)) {
+                h += 1;
+            }
+            lcp[rank[i]] = h;
+        }
+        return lcp;
+    }
+}
@@ -1,8 +1,19 @@
 package autocomplete;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Ternary search tree (TST) implementation of the {@link Autocomplete} interface.
@@ -10,11 +21,21 @@ import java.util.List;
  * @see Autocomplete
  */
 public class TernarySearchTreeAutocomplete implements Autocomplete {
+    /**
+     * Batches of at least this many terms are sorted and inserted in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    /**
+     * The tree is rebuilt once the number of removed terms exceeds this fraction of the remaining terms.
+     */
+    private static final double MAX_REMOVED_RATIO = 0.5;
     /**
      * The overall root of the tree: the first character of the first autocompletion term added to this tree.
      */
     private Node overallRoot;   // root of TST
     private int n;              // size of TST
+    private int removed;        // terms removed since the tree was last rebuilt
+    private final VisitCounter visited = new VisitCounter(); // nodes visited by queries, see nodesVisited()
 
     /**
      * Constructs an empty instance.
@@ -27,8 +48,9 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
         if(key == null) {
             throw new IllegalArgumentException("calls put() with null key");
         }
-        if(!contains(key)) this.n++;
-        this.overallRoot = put(this.overallRoot, key, 0);
+        int[] added = new int[1];
+        this.overallRoot = put(this.overallRoot, key, 0, added);
+        this.n += added[0];
     }
 
     public boolean contains(CharSequence key) {
@@ -76,31 +98,142 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
 
     }
 
-    private Node put(Node x, CharSequence key, int d) {
+    // inserts the key into the subtree x at depth d, counting it in added[0] if it was not already a term
+    private static Node put(Node x, CharSequence key, int d, int[] added) {
         char c = key.charAt(d);
         if (x == null) {
             x = new Node(c);
         }
         if(c < x.data) {
-            x.left = put(x.left, key, d);
+            x.left = put(x.left, key, d, added);
         }
         else if(c > x.data) {
-            x.right = put(x.right, key, d);
+            x.right = put(x.right, key, d, added);
         }
         else if(d < key.length() - 1) {
-            x.mid   = put(x.mid,   key, d+1);
+            x.mid   = put(x.mid,   key, d+1, added);
         }
-        else {
+        else if (!x.isTerm) {
             x.isTerm   = true;
+            added[0]++;
         }
         return x;
     }
 
+    /**
+     * Adds all terms after sorting them once, inserting the median of each sorted range before either half so that
+     * sorted input does not degenerate into long left or right chains. Large batches are sorted in parallel and then
+     * sharded by first character: each shard fills the middle subtree of its own first-character node on the
+     * common fork-join pool, so no two shards touch the same node.
+     */
     @Override
     public void addAll(Collection<? extends CharSequence> terms) {
-        for (CharSequence term : terms) {
-            put(term);
+        CharSequence[] keys = terms.toArray(new CharSequence[0]);
+        for (CharSequence key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("calls put() with null key");
+            }
         }
+        if (keys.length < PARALLEL_THRESHOLD) {
+            StringSorts.sort(keys);
+            int[] added = new int[1];
+            this.overallRoot = putMedians(this.overallRoot, keys, 0, keys.length, 0, added);
+            this.n += added[0];
+            return;
+        }
+        StringSorts.parallelSort(keys);
+
+        // shard boundaries: keys[starts[i], starts[i + 1]) share their first character
+        int[] starts = new int[keys.length + 1];
+        int shards = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i].charAt(0) != keys[i - 1].charAt(0)) {
+                starts[shards++] = i;
+            }
+        }
+        starts[shards] = keys.length;
+        Node[] roots = new Node[shards];
+        putRoots(keys, starts, roots, 0, shards);
+
+        this.n += IntStream.range(0, shards).parallel().map(i -> {
+            Node root = roots[i];
+            int lo = starts[i];
+            int[] added = new int[1];
+            // single-character keys sort first within their shard
+            for (; lo < starts[i + 1] && keys[lo].length() == 1; lo++) {
+                if (!root.isTerm) {
+                    root.isTerm = true;
+                    added[0]++;
+                }
+            }
+            root.mid = putMedians(root.mid, keys, lo, starts[i + 1], 1, added);
+            return added[0];
+        }).sum();
+    }
+
+    // inserts the sorted keys in [lo, hi) median first into the subtree x at depth d, counting new terms in added[0]
+    private static Node putMedians(Node x, CharSequence[] keys, int lo, int hi, int d, int[] added) {
+        if (lo >= hi) return x;
+        int median = (lo + hi) >>> 1;
+        x = put(x, keys[median], d, added);
+        x = putMedians(x, keys, lo, median, d, added);
+        return putMedians(x, keys, median + 1, hi, d, added);
+    }
+
+    // finds or creates the first-character node of each shard in [lo, hi), median first
+    private void putRoots(CharSequence[] keys, int[] starts, Node[] roots, int lo, int hi) {
+        if (lo >= hi) return;
+        int median = (lo + hi) >>> 1;
+        char c = keys[starts[median]].charAt(0);
+        if (this.overallRoot == null) {
+            this.overallRoot = new Node(c);
+        }
+        Node x = this.overallRoot;
+        while (c != x.data) {
+            if (c < x.data) {
+                if (x.left == null) x.left = new Node(c);
+                x = x.left;
+            } else {
+                if (x.right == null) x.right = new Node(c);
+                x = x.right;
+            }
+        }
+        roots[median] = x;
+        putRoots(keys, starts, roots, lo, median);
+        putRoots(keys, starts, roots, median + 1, hi);
+    }
+
+    /**
+     * Removes terms by unmarking their last nodes, leaving the nodes in place as tombstones that queries walk past.
+     * Once enough terms have been removed, the tree is rebuilt from its remaining terms to drop the unused nodes.
+     */
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence key : terms) {
+            if (key == null) {
+                throw new IllegalArgumentException("calls remove() with null key");
+            }
+            if (key.length() == 0) continue;
+            Node x = get(this.overallRoot, key, 0);
+            if (x != null && x.isTerm) {
+                x.isTerm = false;
+                this.n--;
+                this.removed++;
+            }
+        }
+        if (this.removed > this.n * MAX_REMOVED_RATIO) {
+            compact();
+        }
+    }
+
+    // rebuilds the tree from its remaining keys, which collect returns in sorted order
+    private void compact() {
+        List<CharSequence> keys = new ArrayList<>(this.n);
+        collect(this.overallRoot, new StringBuilder(), keys);
+        int[] added = new int[1];
+        this.overallRoot = putMedians(null, keys.toArray(new CharSequence[0]), 0, keys.size(), 0, added);
+        this.n = added[0];
+        this.removed = 0;
     }
 
 
@@ -109,21 +242,161 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
             throw new IllegalArgumentException("calls keysWithPrefix() with null argument");
         }
         List<CharSequence> matches = new ArrayList<>();
-        Node x = get(this.overallRoot, prefix, 0);
+        Node x = find(prefix);
         if (x == null) return matches;
         if (x.isTerm) matches.add(prefix);
-        collect(x.mid, new StringBuilder(prefix), matches);
+        this.visited.add(collect(x.mid, new StringBuilder(prefix), matches));
         return matches;
     }
 
-    // all keys in subtrie rooted at x with given prefix
-    private void collect(Node x, StringBuilder prefix, List<CharSequence> matches) {
-        if (x == null) return;
-        collect(x.left,  prefix, matches);
-        if (x.isTerm) matches.add(prefix.toString() + x.data);
-        collect(x.mid,   prefix.append(x.data), matches);
+    // node for the last character of a non-empty prefix, or null, counting the nodes visited on the way
+    private Node find(CharSequence prefix) {
+        Node x = this.overallRoot;
+        int d = 0;
+        int steps = 0;
+        while (x != null) {
+            steps++;
+            char c = prefix.charAt(d);
+            if (c < x.data) {
+                x = x.left;
+            } else if (c > x.data) {
+                x = x.right;
+            } else if (d < prefix.length() - 1) {
+                x = x.mid;
+                d++;
+            } else {
+                break;
+            }
+        }
+        this.visited.add(steps);
+        return x;
+    }
+
+    // all keys in subtrie rooted at x with given prefix; returns the number of nodes visited
+    private int collect(Node x, StringBuilder prefix, List<CharSequence> matches) {
+        if (x == null) return 0;
+        int count = 1 + collect(x.left, prefix, matches);
+        prefix.append(x.data);
+        if (x.isTerm) matches.add(prefix.toString());
+        count += collect(x.mid,   prefix, matches);
         prefix.deleteCharAt(prefix.length() - 1);
-        collect(x.right, prefix, matches);
+        return count + collect(x.right, prefix, matches);
+    }
+
+    // passes all keys in subtrie rooted at x to the sink as views of the shared prefix buffer; returns the number of
+    // nodes visited
+    private int collect(Node x, StringBuilder prefix, Consumer<? super CharSequence> sink) {
+        if (x == null) return 0;
+        int count = 1 + collect(x.left, prefix, sink);
+        prefix.append(x.data);
+        if (x.isTerm) sink.accept(prefix);
+        count += collect(x.mid,   prefix, sink);
+        prefix.deleteCharAt(prefix.length() - 1);
+        return count + collect(x.right, prefix, sink);
+    }
+
+    /**
+     * Returns all terms that start with some string within the given edit (Levenshtein) distance of the prefix, in
+     * sorted order. The tree is walked with one row of the edit distance table per node, computed from the row of
+     * its parent on the mid link, and a subtree is pruned as soon as every entry in its row exceeds the distance.
+     * <p>
+     * The distance is capped at one less than the length of the prefix. Within a larger distance every term would
+     * match, since the whole prefix could be deleted, so a one- or two-character query would return every term.
+     *
+     * @param prefix      search query.
+     * @param maxDistance maximum number of character insertions, deletions and substitutions, typically 1 or 2.
+     * @return all terms that approximately match the prefix, or an empty list if the prefix is empty.
+     */
+    public List<CharSequence> fuzzyMatches(CharSequence prefix, int maxDistance) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("calls fuzzyMatches() with null argument");
+        }
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative: " + maxDistance);
+        }
+        List<CharSequence> matches = new ArrayList<>();
+        if (prefix.length() == 0) {
+            return matches;
+        }
+        int distance = Math.min(maxDistance, prefix.length() - 1);
+        // row[j] is the edit distance between the first j characters of the prefix and the path so far
+        int[] row = new int[prefix.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        fuzzyCollect(this.overallRoot, new StringBuilder(), row, prefix, distance, matches);
+        return matches;
+    }
+
+    // all keys in subtrie rooted at x whose path approximately matches the prefix, given the row for the path so far
+    private void fuzzyCollect(Node x, StringBuilder path, int[] previous, CharSequence prefix, int maxDistance,
+                              List<CharSequence> matches) {
+        if (x == null) return;
+        fuzzyCollect(x.left, path, previous, prefix, maxDistance, matches);
+
+        int m = prefix.length();
+        int[] row = new int[m + 1];
+        row[0] = previous[0] + 1;
+        int min = row[0];
+        for (int j = 1; j <= m; j++) {
+            int substitute = previous[j - 1] + (prefix.charAt(j - 1) == x.data ? 0 : 1);
+            row[j] = Math.min(substitute, Math.min(previous[j], row[j - 1]) + 1);
+            min = Math.min(min, row[j]);
+        }
+        path.append(x.data);
+        if (row[m] <= maxDistance) {
+            // the whole prefix matches this path, so every key below it matches too
+            if (x.isTerm) matches.add(path.toString());
+            collect(x.mid, path, matches);
+        } else if (min <= maxDistance) {
+            fuzzyCollect(x.mid, path, row, prefix, maxDistance, matches);
+        }
+        path.deleteCharAt(path.length() - 1);
+
+        fuzzyCollect(x.right, path, previous, prefix, maxDistance, matches);
+    }
+
+    /**
+     * Answers the prefixes in sorted order with one shared walk: consecutive sorted prefixes usually share their first
+     * characters, so each search resumes below the last node it has in common with the previous prefix instead of
+     * starting again from the root.
+     */
+    @Override
+    public List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        return PrefixBatches.allMatches(prefixes, true, (sorted, from, to, results) -> {
+            // path[d] is the node matching character d of the previous prefix, for every d < depth
+            Node[] path = new Node[16];
+            int depth = 0;
+            CharSequence previous = "";
+            for (int i = from; i < to; i++) {
+                CharSequence prefix = sorted[i];
+                List<CharSequence> matches = new ArrayList<>();
+                results.set(i, matches);
+                if (prefix.length() == 0) continue;
+                int d = 0;
+                while (d < depth && d < prefix.length() && previous.charAt(d) == prefix.charAt(d)) d++;
+                Node x = d == 0 ? this.overallRoot : path[d - 1].mid;
+                while (x != null && d < prefix.length()) {
+                    char c = prefix.charAt(d);
+                    if (c < x.data) {
+                        x = x.left;
+                    } else if (c > x.data) {
+                        x = x.right;
+                    } else {
+                        if (d == path.length) path = Arrays.copyOf(path, 2 * d);
+                        path[d++] = x;
+                        x = x.mid;
+                    }
+                }
+                depth = d;
+                previous = prefix;
+                if (d < prefix.length()) continue;
+                Node last = path[d - 1];
+                StringBuilder key = new StringBuilder(prefix);
+                if (last.isTerm) matches.add(key.toString());
+                collect(last.mid, key, matches);
+            }
+        });
     }
 
     @Override
@@ -136,6 +409,145 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
         return result = keysWithPrefix(prefix);
     }
 
+    /**
+     * Passes each matching term to the sink as a view of one reused buffer, so no strings are created.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        Node x = find(prefix);
+        if (x == null) {
+            return;
+        }
+        StringBuilder key = new StringBuilder(prefix);
+        if (x.isTerm) sink.accept(key);
+        this.visited.add(collect(x.mid, key, sink));
+    }
+
+    /**
+     * Walks the tree with an explicit stack, since a tree built from sorted input is a linked list too deep to recurse
+     * over. A term's lookup depth counts every node compared on the way down to it, left and right links included.
+     */
+    @Override
+    public StructureStats stats() {
+        long nodes = 0;
+        long[] depths = new long[16];
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> stackDepths = new ArrayDeque<>();
+        if (this.overallRoot != null) {
+            stack.push(this.overallRoot);
+            stackDepths.push(1);
+        }
+        while (!stack.isEmpty()) {
+            Node x = stack.pop();
+            int depth = stackDepths.pop();
+            nodes++;
+            if (x.isTerm) depths = StructureStats.addDepth(depths, depth);
+            if (x.left != null)  { stack.push(x.left);  stackDepths.push(depth + 1); }
+            if (x.mid != null)   { stack.push(x.mid);   stackDepths.push(depth + 1); }
+            if (x.right != null) { stack.push(x.right); stackDepths.push(depth + 1); }
+        }
+        // each node holds a char, a boolean and three references
+        long nodeBytes = StructureStats.objectBytes(Character.BYTES + 1 + 3 * StructureStats.REFERENCE);
+        return new StructureStats(this.n, nodes, nodes * nodeBytes, depths);
+    }
+
+    @Override
+    public long nodesVisited() {
+        return this.visited.get();
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        Node x = get(this.overallRoot, prefix, 0);
+        if (x == null) {
+            return Stream.empty();
+        }
+        Iterator<CharSequence> iterator = new MatchIterator(x, prefix);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false
+        );
+    }
+
+    /**
+     * Iterates over all keys with a given prefix in sorted order, descending into the tree only as far as needed to
+     * produce the next key. An explicit stack replaces the recursion in {@code collect}.
+     */
+    private static class MatchIterator implements Iterator<CharSequence> {
+        private final Deque<Frame> stack;
+        private final StringBuilder key;
+        private CharSequence next;
+
+        /**
+         * Constructs an iterator over the keys that start with the given prefix.
+         *
+         * @param x      node for the last character of the prefix.
+         * @param prefix the prefix shared by every key.
+         */
+        MatchIterator(Node x, CharSequence prefix) {
+            this.stack = new ArrayDeque<>();
+            this.key = new StringBuilder(prefix);
+            if (x.mid != null) {
+                stack.push(new Frame(x.mid, prefix.length(), false));
+            }
+            this.next = x.isTerm ? prefix.toString() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Visiting a subtree schedules its left subtree, its own character, its mid subtree and then its right
+            // subtree; the character frame fixes key[depth] before anything in the mid subtree is visited.
+            while (next == null && !stack.isEmpty()) {
+                Frame frame = stack.pop();
+                Node x = frame.node;
+                if (frame.visited) {
+                    key.setLength(frame.depth);
+                    key.append(x.data);
+                    if (x.isTerm) {
+                        next = key.toString();
+                    }
+                } else {
+                    if (x.right != null) stack.push(new Frame(x.right, frame.depth, false));
+                    if (x.mid != null) stack.push(new Frame(x.mid, frame.depth + 1, false));
+                    stack.push(new Frame(x, frame.depth, true));
+                    if (x.left != null) stack.push(new Frame(x.left, frame.depth, false));
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CharSequence result = next;
+            next = null;
+            return result;
+        }
+
+        /**
+         * A pending step of the traversal: either visit the subtree rooted at the node, or append the node's character
+         * at the given depth and report it if it ends a key.
+         */
+        private static class Frame {
+            private final Node node;
+            private final int depth;
+            private final boolean visited;
+
+            Frame(Node node, int depth, boolean visited) {
+                this.node = node;
+                this.depth = depth;
+                this.visited = visited;
+            }
+        }
+    }
+
     /**
      * A search tree node representing a single character in an autocompletion term.
      */
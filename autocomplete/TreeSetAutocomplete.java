@@ -1,6 +1,8 @@
 package autocomplete;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * {@link TreeSet} implementation of the {@link Autocomplete} interface.
@@ -26,6 +28,13 @@ public class TreeSetAutocomplete implements Autocomplete {
         this.terms.addAll(terms);
     }
 
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            this.terms.remove(term);
+        }
+    }
+
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
         List<CharSequence> result = new ArrayList<>();
@@ -45,4 +54,38 @@ public class TreeSetAutocomplete implements Autocomplete {
         }
         return result;
     }
+
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        for (CharSequence term : terms.tailSet(prefix, true)) {
+            if (!Autocomplete.isPrefixOf(prefix, term)) {
+                return;
+            }
+            sink.accept(term);
+        }
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        return terms.tailSet(prefix, true).stream().takeWhile(term -> Autocomplete.isPrefixOf(prefix, term));
+    }
+
+    /**
+     * Reports each term as one red-black tree entry holding the term. The tree's depths are not visible.
+     */
+    @Override
+    public StructureStats stats() {
+        // key, value, left, right, and parent references and the color
+        long bytes = terms.size() * StructureStats.objectBytes(5 * StructureStats.REFERENCE + 1);
+        for (CharSequence term : terms) {
+            bytes += StructureStats.stringBytes(term);
+        }
+        return new StructureStats(terms.size(), terms.size(), bytes, new long[0]);
+    }
 }
@@ -0,0 +1,25 @@
+package autocomplete;
+
+/**
+ * Per-thread count of the nodes visited by queries, used by implementations to report
+ * {@link Autocomplete#nodesVisited()}. Each thread only sees the nodes visited by its own queries, so a caller can
+ * measure one query by reading the count before and after it even while other threads query the same instance, and
+ * counting needs no synchronization.
+ */
+final class VisitCounter {
+    private final ThreadLocal<long[]> counts = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Adds the given number of nodes to the calling thread's count.
+     */
+    void add(long nodes) {
+        counts.get()[0] += nodes;
+    }
+
+    /**
+     * Returns the number of nodes visited by queries from the calling thread.
+     */
+    long get() {
+        return counts.get()[0];
+    }
+}
@@ -0,0 +1,43 @@
+package autocomplete;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggest the heaviest exact-character prefix matches for any query {@link CharSequence}. Terms added through the
+ * unweighted {@link #addAll(java.util.Collection)} method are given a weight of 0.
+ *
+ * @see Autocomplete
+ * @see WeightedTernarySearchTreeAutocomplete
+ * @see MappedAutocomplete
+ * @see InfixAutocomplete
+ */
+public interface WeightedAutocomplete extends Autocomplete {
+    /**
+     * Adds the given autocompletion term with the given weight, replacing the weight if the term is already present.
+     *
+     * @param term   term to be added.
+     * @param weight weight associated with the term.
+     */
+    void add(CharSequence term, long weight);
+
+    /**
+     * Adds every term in the given map with its associated weight.
+     *
+     * @param terms map from each term to its weight.
+     */
+    default void addAll(Map<? extends CharSequence, ? extends Number> terms) {
+        for (Map.Entry<? extends CharSequence, ? extends Number> entry : terms.entrySet()) {
+            add(entry.getKey(), entry.getValue().longValue());
+        }
+    }
+
+    /**
+     * Returns up to <i>k</i> autocompletion terms that match the given prefix in descending order of weight.
+     *
+     * @param prefix search query.
+     * @param k      maximum number of terms to return.
+     * @return the heaviest <i>k</i> matching terms, heaviest first.
+     */
+    List<CharSequence> topMatches(CharSequence prefix, int k);
+}
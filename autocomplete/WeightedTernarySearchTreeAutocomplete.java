@@ -0,0 +1,404 @@
+package autocomplete;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Ternary search tree (TST) implementation of the {@link WeightedAutocomplete} interface. Every node records the
+ * maximum weight and the number of terms in its subtree so that {@link #topMatches(CharSequence, int)} only expands
+ * the heaviest subtrees and {@link #countMatches(CharSequence)} never visits the matching terms.
+ *
+ * @see WeightedAutocomplete
+ * @see TernarySearchTreeAutocomplete
+ */
+public class WeightedTernarySearchTreeAutocomplete implements WeightedAutocomplete {
+    /**
+     * The overall root of the tree: the first character of the first autocompletion term added to this tree.
+     */
+    private Node overallRoot;
+    /**
+     * Number of terms in this tree.
+     */
+    private int n;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public WeightedTernarySearchTreeAutocomplete() {
+        overallRoot = null;
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            add(term, 0);
+        }
+    }
+
+    @Override
+    public void add(CharSequence term, long weight) {
+        if (term == null || term.length() == 0) {
+            throw new IllegalArgumentException("calls add() with null or empty term");
+        }
+        if (overallRoot == null) {
+            overallRoot = new Node(term.charAt(0));
+        }
+        // Walk down iteratively, remembering the path so subtree summaries can be repaired bottom-up.
+        List<Node> path = new ArrayList<>();
+        Node x = overallRoot;
+        int d = 0;
+        while (true) {
+            path.add(x);
+            char c = term.charAt(d);
+            if (c < x.data) {
+                if (x.left == null) {
+                    x.left = new Node(c);
+                }
+                x = x.left;
+            } else if (c > x.data) {
+                if (x.right == null) {
+                    x.right = new Node(c);
+                }
+                x = x.right;
+            } else if (d < term.length() - 1) {
+                d += 1;
+                if (x.mid == null) {
+                    x.mid = new Node(term.charAt(d));
+                }
+                x = x.mid;
+            } else {
+                break;
+            }
+        }
+        if (!x.isTerm) {
+            n += 1;
+        }
+        x.isTerm = true;
+        x.weight = weight;
+        for (int i = path.size() - 1; i >= 0; i -= 1) {
+            path.get(i).update();
+        }
+    }
+
+    /**
+     * Removes terms and repairs subtree summaries bottom-up. Since every node counts the terms in its subtree, a
+     * subtree left without terms is unlinked immediately, so no tombstones remain.
+     */
+    @Override
+    public void removeAll(Collection<? extends CharSequence> terms) {
+        for (CharSequence term : terms) {
+            if (term == null) {
+                throw new IllegalArgumentException("calls remove() with null term");
+            }
+            if (term.length() > 0) {
+                remove(term);
+            }
+        }
+    }
+
+    /**
+     * Removes the given non-empty term if present.
+     */
+    private void remove(CharSequence term) {
+        List<Node> path = new ArrayList<>();
+        Node x = overallRoot;
+        int d = 0;
+        while (x != null) {
+            path.add(x);
+            char c = term.charAt(d);
+            if (c < x.data) {
+                x = x.left;
+            } else if (c > x.data) {
+                x = x.right;
+            } else if (d < term.length() - 1) {
+                x = x.mid;
+                d += 1;
+            } else {
+                break;
+            }
+        }
+        if (x == null || !x.isTerm) {
+            return;
+        }
+        x.isTerm = false;
+        n -= 1;
+        for (int i = path.size() - 1; i >= 0; i -= 1) {
+            Node y = path.get(i);
+            if (Node.size(y.left) == 0) {
+                y.left = null;
+            }
+            if (Node.size(y.mid) == 0) {
+                y.mid = null;
+            }
+            if (Node.size(y.right) == 0) {
+                y.right = null;
+            }
+            y.update();
+        }
+        if (overallRoot.size == 0) {
+            overallRoot = null;
+        }
+    }
+
+    /**
+     * Returns the number of terms in this tree.
+     *
+     * @return the number of terms in this tree.
+     */
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        Node x = get(prefix);
+        if (x == null) {
+            return result;
+        }
+        if (x.isTerm) {
+            result.add(prefix.toString());
+        }
+        collect(x.mid, new StringBuilder(prefix), result);
+        return result;
+    }
+
+    /**
+     * Passes each matching term to the sink as a view of one reused buffer, so no strings are created.
+     */
+    @Override
+    public void allMatches(CharSequence prefix, Consumer<? super CharSequence> sink) {
+        if (prefix == null || prefix.length() == 0) {
+            return;
+        }
+        Node x = get(prefix);
+        if (x == null) {
+            return;
+        }
+        StringBuilder key = new StringBuilder(prefix);
+        if (x.isTerm) {
+            sink.accept(key);
+        }
+        collect(x.mid, key, sink);
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0 || k <= 0) {
+            return result;
+        }
+        Node x = get(prefix);
+        if (x == null) {
+            return result;
+        }
+        // Best-first search: the fringe holds finished terms and unexpanded subtrees keyed by their maximum weight, so
+        // a term is only removed once no unexpanded subtree could contain anything heavier.
+        String base = prefix.toString();
+        PriorityQueue<Candidate> fringe = new PriorityQueue<>();
+        if (x.isTerm) {
+            fringe.add(new Candidate(base, x.weight, null));
+        }
+        if (x.mid != null) {
+            fringe.add(new Candidate(base, x.mid.max, x.mid));
+        }
+        while (!fringe.isEmpty() && result.size() < k) {
+            Candidate next = fringe.remove();
+            Node y = next.node;
+            if (y == null) {
+                result.add(next.prefix);
+                continue;
+            }
+            if (y.left != null) {
+                fringe.add(new Candidate(next.prefix, y.left.max, y.left));
+            }
+            if (y.right != null) {
+                fringe.add(new Candidate(next.prefix, y.right.max, y.right));
+            }
+            String term = next.prefix + y.data;
+            if (y.isTerm) {
+                fringe.add(new Candidate(term, y.weight, null));
+            }
+            if (y.mid != null) {
+                fringe.add(new Candidate(term, y.mid.max, y.mid));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        Node x = get(prefix);
+        if (x == null) {
+            return 0;
+        }
+        return (x.isTerm ? 1 : 0) + Node.size(x.mid);
+    }
+
+    /**
+     * Counts nodes and depths as {@link TernarySearchTreeAutocomplete#stats()} does. Each node here is larger, since it
+     * also keeps the weight, subtree maximum and subtree size that top-<i>k</i> queries prune with.
+     */
+    @Override
+    public StructureStats stats() {
+        long nodes = 0;
+        long[] depths = new long[16];
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> stackDepths = new ArrayDeque<>();
+        if (overallRoot != null) {
+            stack.push(overallRoot);
+            stackDepths.push(1);
+        }
+        while (!stack.isEmpty()) {
+            Node x = stack.pop();
+            int depth = stackDepths.pop();
+            nodes += 1;
+            if (x.isTerm) {
+                depths = StructureStats.addDepth(depths, depth);
+            }
+            if (x.left != null) {
+                stack.push(x.left);
+                stackDepths.push(depth + 1);
+            }
+            if (x.mid != null) {
+                stack.push(x.mid);
+                stackDepths.push(depth + 1);
+            }
+            if (x.right != null) {
+                stack.push(x.right);
+                stackDepths.push(depth + 1);
+            }
+        }
+        // each node holds a char, a boolean, the weight and maximum, the size, and three references
+        long nodeBytes = StructureStats.objectBytes(Character.BYTES + 1 + 2 * Long.BYTES + Integer.BYTES
+                + 3 * StructureStats.REFERENCE);
+        return new StructureStats(n, nodes, nodes * nodeBytes, depths);
+    }
+
+    /**
+     * Returns the node for the last character of the given key, or null if the key is not a path in this tree.
+     *
+     * @param key non-empty key to look up.
+     * @return the node for the last character of the key, or null.
+     */
+    private Node get(CharSequence key) {
+        Node x = overallRoot;
+        int d = 0;
+        while (x != null) {
+            char c = key.charAt(d);
+            if (c < x.data) {
+                x = x.left;
+            } else if (c > x.data) {
+                x = x.right;
+            } else if (d < key.length() - 1) {
+                x = x.mid;
+                d += 1;
+            } else {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    // all keys in subtrie rooted at x with given prefix
+    private void collect(Node x, StringBuilder prefix, List<CharSequence> matches) {
+        if (x == null) return;
+        collect(x.left, prefix, matches);
+        prefix.append(x.data);
+        if (x.isTerm) matches.add(prefix.toString());
+        collect(x.mid, prefix, matches);
+        prefix.deleteCharAt(prefix.length() - 1);
+        collect(x.right, prefix, matches);
+    }
+
+    // passes all keys in subtrie rooted at x to the sink as views of the shared prefix buffer
+    private void collect(Node x, StringBuilder prefix, Consumer<? super CharSequence> sink) {
+        if (x == null) return;
+        collect(x.left, prefix, sink);
+        prefix.append(x.data);
+        if (x.isTerm) sink.accept(prefix);
+        collect(x.mid, prefix, sink);
+        prefix.deleteCharAt(prefix.length() - 1);
+        collect(x.right, prefix, sink);
+    }
+
+    /**
+     * A search tree node representing a single character in an autocompletion term along with summaries of the
+     * terms in its subtree.
+     */
+    private static class Node {
+        private final char data;
+        private boolean isTerm;
+        private long weight;
+        /**
+         * Maximum weight of any term in the subtree rooted at this node, including the left and right subtrees.
+         */
+        private long max;
+        /**
+         * Number of terms in the subtree rooted at this node, including the left and right subtrees.
+         */
+        private int size;
+        private Node left;
+        private Node mid;
+        private Node right;
+
+        public Node(char data) {
+            this.data = data;
+            this.isTerm = false;
+            this.max = Long.MIN_VALUE;
+        }
+
+        /**
+         * Recomputes the subtree summaries of this node from its children.
+         */
+        private void update() {
+            max = Math.max(isTerm ? weight : Long.MIN_VALUE, Math.max(max(left), Math.max(max(mid), max(right))));
+            size = (isTerm ? 1 : 0) + size(left) + size(mid) + size(right);
+        }
+
+        private static long max(Node x) {
+            return x == null ? Long.MIN_VALUE : x.max;
+        }
+
+        private static int size(Node x) {
+            return x == null ? 0 : x.size;
+        }
+    }
+
+    /**
+     * An entry in the best-first search fringe: either a finished term (null node) or an unexpanded subtree whose
+     * characters follow the given prefix.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        private final String prefix;
+        private final long priority;
+        private final Node node;
+
+        Candidate(String prefix, long priority, Node node) {
+            this.prefix = prefix;
+            this.priority = priority;
+            this.node = node;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int cmp = Long.compare(other.priority, this.priority);
+            if (cmp != 0) {
+                return cmp;
+            }
+            // Emit finished terms before expanding subtrees of equal weight.
+            return Boolean.compare(this.node != null, other.node != null);
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package autocomplete.cities;
 
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
+import autocomplete.InfixAutocomplete;
+import autocomplete.MappedAutocomplete;
+import autocomplete.WeightedAutocomplete;
+import tsv.TsvReader;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.*;
-import java.util.zip.GZIPInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
 
 /**
- * Search the world's cities.
+ * Search the world's cities. Queries starting with {@code *} match city names that contain the rest of the query
+ * anywhere, ignoring case.
  */
 class Cities {
     /**
@@ -24,16 +29,24 @@ class Cities {
      * Path to the cities dataset.
      */
     private static final String PATH = "data/cities.tsv.gz";
+    /**
+     * Path to the memory-mapped index built from the cities dataset.
+     */
+    private static final String INDEX_PATH = "data/cities.idx";
+    /**
+     * Query prefix that selects substring rather than prefix matching.
+     */
+    private static final String INFIX = "*";
 
     public static void main(String[] args) throws IOException {
-        Map<String, Integer> cities = new LinkedHashMap<>();
-        Scanner input = new Scanner(new GZIPInputStream(new FileInputStream(PATH)));
-        for (int i = 0; i < MAX_CITIES && input.hasNextLine(); i += 1) {
-            Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
-            cities.put(line.next(), line.nextInt());
+        Path index = Path.of(INDEX_PATH);
+        Path dataset = Path.of(PATH);
+        if (!Files.exists(index)
+                || Files.getLastModifiedTime(index).compareTo(Files.getLastModifiedTime(dataset)) < 0) {
+            MappedAutocomplete.write(index, readCities());
         }
-        Autocomplete autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(cities.keySet());
+        WeightedAutocomplete autocomplete = MappedAutocomplete.open(index);
+        InfixAutocomplete infix = null;
 
         Scanner stdin = new Scanner(System.in);
         System.out.print("Query: ");
@@ -42,14 +55,34 @@ class Cities {
             if (prefix.isEmpty()) {
                 System.exit(0);
             }
-            List<CharSequence> matches = autocomplete.allMatches(prefix);
-            System.out.println(matches.size() + " matches");
-            matches.sort(Comparator.comparingInt(cities::get).reversed());
-            for (int i = 0; i < Math.min(matches.size(), MAX_MATCHES); i += 1) {
-                System.out.println(matches.get(i));
+            WeightedAutocomplete search = autocomplete;
+            if (prefix.startsWith(INFIX)) {
+                if (infix == null) {
+                    infix = new InfixAutocomplete();
+                    infix.addAll(readCities());
+                }
+                search = infix;
+                prefix = prefix.substring(INFIX.length());
+            }
+            System.out.println(search.countMatches(prefix) + " matches");
+            for (CharSequence match : search.topMatches(prefix, MAX_MATCHES)) {
+                System.out.println(match);
             }
             System.out.println();
             System.out.print("Query: ");
         }
     }
+
+    /**
+     * Reads the cities dataset into a map from each city name to its largest population.
+     */
+    private static Map<String, Long> readCities() throws IOException {
+        Map<String, Long> cities = new HashMap<>();
+        try (TsvReader input = TsvReader.open(PATH)) {
+            for (int i = 0; i < MAX_CITIES && input.nextRow(); i += 1) {
+                cities.merge(input.nextString(), input.nextLong(), Math::max);
+            }
+        }
+        return cities;
+    }
 }
@@ -1,11 +1,7 @@
 package autocomplete.dna;
 
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
-
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.List;
 import java.util.Scanner;
 import java.util.zip.GZIPInputStream;
 
@@ -24,8 +20,8 @@ class DNA {
 
     public static void main(String[] args) throws IOException {
         String dna = new Scanner(new GZIPInputStream(new FileInputStream(PATH))).next();
-        Autocomplete autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(new SuffixCollection(dna));
+        FMIndexAutocomplete autocomplete = new FMIndexAutocomplete();
+        autocomplete.addAll(SuffixCollection.of(dna));
 
         Scanner stdin = new Scanner(System.in);
         System.out.print("Query: ");
@@ -34,10 +30,8 @@ class DNA {
             if (prefix.isEmpty()) {
                 System.exit(0);
             }
-            List<CharSequence> matches = autocomplete.allMatches(prefix);
-            System.out.println(matches.size() + " matches");
-            for (int i = 0; i < Math.min(matches.size(), MAX_MATCHES); i += 1) {
-                CharSequence match = matches.get(i);
+            System.out.println(autocomplete.countMatches(prefix) + " matches");
+            for (CharSequence match : autocomplete.firstMatches(prefix, MAX_MATCHES)) {
                 if (match.length() >= 97) {
                     match = match.subSequence(0, 97) + "...";
                 }
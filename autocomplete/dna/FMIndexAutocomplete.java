@@ -0,0 +1,304 @@
+package autocomplete.dna;
+
+import autocomplete.Autocomplete;
+import autocomplete.PrefixBatches;
+import autocomplete.StructureStats;
+import autocomplete.SuffixArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * FM-index implementation of the {@link Autocomplete} interface for the suffixes of a {@link SuffixCollection}. The
+ * index stores the Burrows-Wheeler transform (BWT) of the source sequence as one rank bitvector per distinct character
+ * and keeps only every {@link #SAMPLE_RATE}-th suffix offset. Counting the matches for a prefix takes
+ * O(<i>prefix length</i>) rank queries and locating each match takes fewer than {@link #SAMPLE_RATE} LF-mapping steps.
+ * Over the 4-letter DNA alphabet the index costs about 1 byte per character, in addition to the source sequence that
+ * backs the returned suffixes.
+ *
+ * @see Autocomplete
+ * @see SuffixCollection
+ * @see SuffixArrayAutocomplete
+ */
+public class FMIndexAutocomplete implements Autocomplete {
+    /**
+     * Distance between sampled suffix offsets in the source sequence.
+     */
+    private static final int SAMPLE_RATE = 32;
+    /**
+     * The indexed suffixes, or null if no suffixes have been added.
+     */
+    private SuffixCollection suffixes;
+    /**
+     * Distinct characters of the source sequence in sorted order; a character's code is its index in this array.
+     */
+    private char[] alphabet;
+    /**
+     * For each character code, the number of rows (including the empty suffix) that start with a smaller character.
+     */
+    private int[] firstRow;
+    /**
+     * For each character code, the BWT positions holding that character.
+     */
+    private BitVector[] occurrences;
+    /**
+     * BWT positions (rows) whose suffix offset is sampled.
+     */
+    private BitVector sampled;
+    /**
+     * Sampled suffix offsets in row order.
+     */
+    private int[] samples;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public FMIndexAutocomplete() {
+        this.alphabet = new char[0];
+        this.firstRow = new int[0];
+        this.occurrences = new BitVector[0];
+        this.sampled = new BitVector(new long[1]);
+        this.samples = new int[0];
+    }
+
+    /**
+     * Indexes all suffixes of the given {@link SuffixCollection}.
+     *
+     * @param terms the {@link SuffixCollection} to index.
+     * @throws IllegalArgumentException if the terms are not a {@link SuffixCollection}.
+     * @throws IllegalStateException    if suffixes have already been added.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        if (!(terms instanceof SuffixCollection)) {
+            throw new IllegalArgumentException("FMIndexAutocomplete only indexes a SuffixCollection");
+        }
+        if (suffixes != null) {
+            throw new IllegalStateException("FMIndexAutocomplete already contains suffixes");
+        }
+        suffixes = (SuffixCollection) terms;
+        CharSequence data = suffixes.data();
+        int n = data.length();
+
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        int sigma = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (!present[data.charAt(i)]) {
+                present[data.charAt(i)] = true;
+                sigma += 1;
+            }
+        }
+        alphabet = new char[sigma];
+        for (int c = 0, j = 0; c <= Character.MAX_VALUE; c += 1) {
+            if (present[c]) {
+                alphabet[j] = (char) c;
+                j += 1;
+            }
+        }
+
+        // Row 0 is the empty suffix, which sorts before every other suffix; row r + 1 is suffix sa[r].
+        int[] sa = SuffixArrays.suffixArray(data);
+        int rows = n + 1;
+        long[][] occurrenceBits = new long[sigma][BitVector.words(rows)];
+        long[] sampledBits = new long[BitVector.words(rows)];
+        samples = new int[n / SAMPLE_RATE + 1];
+        int[] counts = new int[sigma];
+        for (int r = 0, k = 0; r < rows; r += 1) {
+            int offset = r == 0 ? n : sa[r - 1];
+            if (offset > 0) {
+                int code = code(data.charAt(offset - 1));
+                occurrenceBits[code][r >>> 6] |= 1L << r;
+                counts[code] += 1;
+            }
+            if (offset % SAMPLE_RATE == 0) {
+                sampledBits[r >>> 6] |= 1L << r;
+                samples[k] = offset;
+                k += 1;
+            }
+        }
+        occurrences = new BitVector[sigma];
+        firstRow = new int[sigma];
+        for (int c = 0, total = 1; c < sigma; c += 1) {
+            occurrences[c] = new BitVector(occurrenceBits[c]);
+            firstRow[c] = total;
+            total += counts[c];
+        }
+        sampled = new BitVector(sampledBits);
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return firstMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Answers large batches of prefixes in parallel. Backward search reads the index without modifying it, so the
+     * chunks of the batch need no coordination.
+     */
+    @Override
+    public List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        return PrefixBatches.allMatches(prefixes, true, (sorted, from, to, results) -> {
+            for (int i = from; i < to; i += 1) {
+                results.set(i, allMatches(sorted[i]));
+            }
+        });
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        long range = range(prefix);
+        return IntStream.range((int) (range >>> 32), (int) range).mapToObj(r -> suffixes.suffix(locate(r)));
+    }
+
+    /**
+     * Returns up to <i>limit</i> suffixes that match the given prefix in sorted order, locating only the returned
+     * suffixes.
+     *
+     * @param prefix search query.
+     * @param limit  maximum number of suffixes to return.
+     * @return the first <i>limit</i> matching suffixes.
+     */
+    public List<CharSequence> firstMatches(CharSequence prefix, int limit) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        long range = range(prefix);
+        int start = (int) (range >>> 32);
+        int end = (int) range;
+        for (int r = start; r < end && result.size() < limit; r += 1) {
+            result.add(suffixes.suffix(locate(r)));
+        }
+        return result;
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        long range = range(prefix);
+        return (int) range - (int) (range >>> 32);
+    }
+
+    /**
+     * Reports the suffixes and the bytes of the rank bitvectors and offset samples, not counting the source sequence
+     * that backs the suffixes. Backward search takes one rank step per query character rather than visiting nodes.
+     */
+    @Override
+    public StructureStats stats() {
+        long bytes = StructureStats.arrayBytes(alphabet.length, Character.BYTES)
+                + StructureStats.arrayBytes(firstRow.length, Integer.BYTES)
+                + StructureStats.arrayBytes(occurrences.length, StructureStats.REFERENCE)
+                + sampled.bytes()
+                + StructureStats.arrayBytes(samples.length, Integer.BYTES);
+        for (BitVector occurrence : occurrences) {
+            bytes += occurrence.bytes();
+        }
+        int terms = suffixes == null ? 0 : suffixes.data().length();
+        return new StructureStats(terms, -1, bytes, new long[0]);
+    }
+
+    /**
+     * Returns the half-open range of rows whose suffixes start with the given prefix using backward search, packed
+     * into a long as (start &lt;&lt; 32) | end.
+     *
+     * @param prefix non-empty search query.
+     * @return the packed range of matching rows, which is empty if there are no matches.
+     */
+    private long range(CharSequence prefix) {
+        if (suffixes == null) {
+            return 0;
+        }
+        int start = 0;
+        int end = suffixes.data().length() + 1;
+        for (int i = prefix.length() - 1; i >= 0 && start < end; i -= 1) {
+            int code = code(prefix.charAt(i));
+            if (code < 0) {
+                return 0;
+            }
+            start = firstRow[code] + occurrences[code].rank(start);
+            end = firstRow[code] + occurrences[code].rank(end);
+        }
+        return start < end ? ((long) start << 32) | end : 0;
+    }
+
+    /**
+     * Returns the suffix offset of the given row by LF-mapping backwards until reaching a sampled row.
+     *
+     * @param row the row to locate.
+     * @return the offset in the source sequence of the suffix at the given row.
+     */
+    private int locate(int row) {
+        int steps = 0;
+        while (!sampled.get(row)) {
+            int code = 0;
+            while (!occurrences[code].get(row)) {
+                code += 1;
+            }
+            row = firstRow[code] + occurrences[code].rank(row);
+            steps += 1;
+        }
+        return samples[sampled.rank(row)] + steps;
+    }
+
+    /**
+     * Returns the code of the given character, or a negative value if it does not occur in the source sequence.
+     */
+    private int code(char c) {
+        return Arrays.binarySearch(alphabet, c);
+    }
+
+    /**
+     * An immutable bitvector supporting constant-time rank queries with one cumulative count per 64-bit word.
+     */
+    private static class BitVector {
+        private final long[] bits;
+        /**
+         * Number of set bits in all words before each word.
+         */
+        private final int[] ranks;
+
+        BitVector(long[] bits) {
+            this.bits = bits;
+            this.ranks = new int[bits.length];
+            for (int w = 1; w < bits.length; w += 1) {
+                ranks[w] = ranks[w - 1] + Long.bitCount(bits[w - 1]);
+            }
+        }
+
+        /**
+         * Returns the number of words needed to hold the given number of bits plus one, so rank(length) is valid.
+         */
+        static int words(int length) {
+            return (length >>> 6) + 1;
+        }
+
+        boolean get(int i) {
+            return (bits[i >>> 6] & (1L << i)) != 0;
+        }
+
+        /**
+         * Returns the estimated number of bytes retained by this bitvector and its rank directory.
+         */
+        long bytes() {
+            return StructureStats.objectBytes(2 * StructureStats.REFERENCE)
+                    + StructureStats.arrayBytes(bits.length, Long.BYTES)
+                    + StructureStats.arrayBytes(ranks.length, Integer.BYTES);
+        }
+
+        /**
+         * Returns the number of set bits before position <i>i</i>.
+         */
+        int rank(int i) {
+            return ranks[i >>> 6] + Long.bitCount(bits[i >>> 6] & ((1L << i) - 1));
+        }
+    }
+}
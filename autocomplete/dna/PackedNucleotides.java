@@ -0,0 +1,120 @@
+package autocomplete.dna;
+
+/**
+ * An immutable sequence of nucleotides over the alphabet {@code ACGT} stored at 2 bits per base, 32 bases per
+ * {@code long}. Bases are packed from the most significant bits down so that comparing two aligned words as unsigned
+ * integers compares 32 bases lexicographically.
+ */
+class PackedNucleotides implements CharSequence {
+    /**
+     * The alphabet in sorted order; a base's 2-bit code is its index in this string.
+     */
+    private static final String ALPHABET = "ACGT";
+    private final long[] words;
+    private final int length;
+
+    /**
+     * Constructs a packed copy of the given nucleotide sequence.
+     *
+     * @param data sequence of {@code A}, {@code C}, {@code G} and {@code T} characters.
+     * @throws IllegalArgumentException if the data contains any other character.
+     */
+    public PackedNucleotides(CharSequence data) {
+        this.length = data.length();
+        this.words = new long[(length + 31) >>> 5];
+        for (int i = 0; i < length; i += 1) {
+            int code = ALPHABET.indexOf(data.charAt(i));
+            if (code < 0) {
+                throw new IllegalArgumentException("not a nucleotide: " + data.charAt(i) + " at index " + i);
+            }
+            words[i >>> 5] |= (long) code << shift(i);
+        }
+    }
+
+    /**
+     * Returns true if and only if every character in the given sequence is one of {@code A}, {@code C}, {@code G} or
+     * {@code T}.
+     *
+     * @param data sequence to check.
+     * @return true if and only if the sequence can be packed.
+     */
+    public static boolean isPackable(CharSequence data) {
+        for (int i = 0; i < data.length(); i += 1) {
+            if (ALPHABET.indexOf(data.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return ALPHABET.charAt((int) (words[index >>> 5] >>> shift(index)) & 3);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public CharSequence subSequence(int begin, int end) {
+        if (begin < 0 || begin > end || end > length) {
+            throw new IndexOutOfBoundsException("begin " + begin + ", end " + end + ", length " + length);
+        }
+        StringBuilder result = new StringBuilder(end - begin);
+        for (int i = begin; i < end; i += 1) {
+            result.append(charAt(i));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the offset of the first base that differs between the <i>n</i> bases starting at <i>begin</i> in this
+     * sequence and the <i>n</i> bases starting at <i>otherBegin</i> in the other sequence, comparing 32 bases at a
+     * time.
+     *
+     * @param begin      start index into this sequence.
+     * @param other      the other sequence.
+     * @param otherBegin start index into the other sequence.
+     * @param n          number of bases to compare, which must lie within both sequences.
+     * @return the offset of the first mismatch, or <i>n</i> if all compared bases are equal.
+     */
+    public int mismatch(int begin, PackedNucleotides other, int otherBegin, int n) {
+        for (int k = 0; k < n; k += 32) {
+            long diff = word(begin + k) ^ other.word(otherBegin + k);
+            if (diff != 0) {
+                return Math.min(n, k + Long.numberOfLeadingZeros(diff) / 2);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the 32 bases starting at the given index packed into one word, padded with zero bits past the end.
+     */
+    private long word(int index) {
+        int w = index >>> 5;
+        int offset = (index & 31) * 2;
+        long result = words[w] << offset;
+        if (offset > 0 && w + 1 < words.length) {
+            result |= words[w + 1] >>> (64 - offset);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bit shift of the given base within its word.
+     */
+    private static int shift(int index) {
+        return 62 - 2 * (index & 31);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,245 @@
+package autocomplete.dna;
+
+import autocomplete.Autocomplete;
+import autocomplete.PrefixBatches;
+import autocomplete.StructureStats;
+import autocomplete.SuffixArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Suffix array implementation of the {@link Autocomplete} interface for the suffixes of a {@link SuffixCollection}.
+ * Rather than storing one object per suffix, the index keeps the sorted suffix offsets in an {@code int[]} and the LCP
+ * of adjacent suffixes in a {@code byte[]}, for about 5 bytes per character of the source sequence.
+ *
+ * @see Autocomplete
+ * @see SuffixCollection
+ */
+public class SuffixArrayAutocomplete implements Autocomplete {
+    /**
+     * Largest LCP value stored inline; larger values are kept in the overflow arrays.
+     */
+    private static final int MAX_INLINE_LCP = 0xFF;
+    /**
+     * The indexed suffixes, or null if no suffixes have been added.
+     */
+    private SuffixCollection suffixes;
+    /**
+     * Offsets of every suffix in sorted order.
+     */
+    private int[] sa;
+    /**
+     * LCP of each suffix with the previous suffix in sorted order, saturated at {@link #MAX_INLINE_LCP}.
+     */
+    private byte[] lcp;
+    /**
+     * Sorted suffix array positions whose LCP did not fit inline, and their LCP values.
+     */
+    private int[] overflowIndex;
+    private int[] overflowLcp;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public SuffixArrayAutocomplete() {
+        this.sa = new int[0];
+        this.lcp = new byte[0];
+        this.overflowIndex = new int[0];
+        this.overflowLcp = new int[0];
+    }
+
+    /**
+     * Indexes all suffixes of the given {@link SuffixCollection}.
+     *
+     * @param terms the {@link SuffixCollection} to index.
+     * @throws IllegalArgumentException if the terms are not a {@link SuffixCollection}.
+     * @throws IllegalStateException    if suffixes have already been added.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        if (!(terms instanceof SuffixCollection)) {
+            throw new IllegalArgumentException("SuffixArrayAutocomplete only indexes a SuffixCollection");
+        }
+        if (suffixes != null) {
+            throw new IllegalStateException("SuffixArrayAutocomplete already contains suffixes");
+        }
+        suffixes = (SuffixCollection) terms;
+        CharSequence data = suffixes.data();
+        sa = SuffixArrays.suffixArray(data);
+        int[] fullLcp = SuffixArrays.lcpArray(data, sa);
+
+        lcp = new byte[fullLcp.length];
+        int overflow = 0;
+        for (int value : fullLcp) {
+            if (value >= MAX_INLINE_LCP) {
+                overflow += 1;
+            }
+        }
+        overflowIndex = new int[overflow];
+        overflowLcp = new int[overflow];
+        for (int i = 0, j = 0; i < fullLcp.length; i += 1) {
+            lcp[i] = (byte) Math.min(fullLcp[i], MAX_INLINE_LCP);
+            if (fullLcp[i] >= MAX_INLINE_LCP) {
+                overflowIndex[j] = i;
+                overflowLcp[j] = fullLcp[i];
+                j += 1;
+            }
+        }
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return new ArrayList<>();
+        }
+        CharSequence query = pack(prefix);
+        return matchesFrom(bound(query, false, 0), query);
+    }
+
+    /**
+     * Answers the prefixes in sorted order, starting each binary search at the lower bound of the previous prefix, so
+     * that each chunk of the batch is one left-to-right sweep over the suffix array. Large batches are answered in
+     * parallel.
+     */
+    @Override
+    public List<List<CharSequence>> allMatches(List<? extends CharSequence> prefixes) {
+        return PrefixBatches.allMatches(prefixes, true, (sorted, from, to, results) -> {
+            int lo = 0;
+            for (int i = from; i < to; i += 1) {
+                CharSequence prefix = sorted[i];
+                if (prefix.length() == 0) {
+                    results.set(i, new ArrayList<>());
+                } else {
+                    CharSequence query = pack(prefix);
+                    lo = bound(query, false, lo);
+                    results.set(i, matchesFrom(lo, query));
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the suffixes that match the packed prefix, given the lower bound of the prefix in the suffix array.
+     */
+    private List<CharSequence> matchesFrom(int start, CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        if (start == sa.length || suffixes.mismatch(sa[start], prefix, 0) < prefix.length()) {
+            return result;
+        }
+        // Every following suffix that shares at least the whole prefix with its predecessor is also a match.
+        result.add(suffixes.suffix(sa[start]));
+        for (int i = start + 1; i < sa.length && lcp(i) >= prefix.length(); i += 1) {
+            result.add(suffixes.suffix(sa[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Stream.empty();
+        }
+        CharSequence query = pack(prefix);
+        int start = bound(query, false, 0);
+        if (start == sa.length || suffixes.mismatch(sa[start], query, 0) < query.length()) {
+            return Stream.empty();
+        }
+        return IntStream.range(start, sa.length)
+                .takeWhile(i -> i == start || lcp(i) >= query.length())
+                .mapToObj(i -> suffixes.suffix(sa[i]));
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        CharSequence query = pack(prefix);
+        int start = bound(query, false, 0);
+        return bound(query, true, start) - start;
+    }
+
+    /**
+     * Reports the suffixes and the bytes of the suffix array and its inline and overflow LCP arrays, not counting the
+     * source sequence that backs the suffixes.
+     */
+    @Override
+    public StructureStats stats() {
+        long bytes = StructureStats.arrayBytes(sa.length, Integer.BYTES)
+                + StructureStats.arrayBytes(lcp.length, Byte.BYTES)
+                + StructureStats.arrayBytes(overflowIndex.length, Integer.BYTES)
+                + StructureStats.arrayBytes(overflowLcp.length, Integer.BYTES);
+        return new StructureStats(sa.length, -1, bytes, new long[0]);
+    }
+
+    /**
+     * Returns the length of the longest common prefix of the suffixes at sorted positions <i>i - 1</i> and <i>i</i>.
+     *
+     * @param i position in the suffix array.
+     * @return the LCP of the suffix at position <i>i</i> with its predecessor, or 0 if <i>i</i> is 0.
+     */
+    public int lcp(int i) {
+        int value = lcp[i] & 0xFF;
+        if (value < MAX_INLINE_LCP) {
+            return value;
+        }
+        return overflowLcp[Arrays.binarySearch(overflowIndex, i)];
+    }
+
+    /**
+     * Returns the first position in the suffix array whose suffix is not less than the prefix, or with {@code upper},
+     * the first position whose suffix is greater than every string that starts with the prefix. Characters already
+     * known to match both ends of the search range are skipped in each comparison, and packed data is compared a word
+     * at a time.
+     *
+     * @param prefix non-empty search query, packed by {@link #pack(CharSequence)}.
+     * @param upper  true to find the upper bound instead of the lower bound.
+     * @param from   position known to be at or before the bound.
+     * @return the bounding position in the suffix array.
+     */
+    private int bound(CharSequence prefix, boolean upper, int from) {
+        if (suffixes == null) {
+            return 0;
+        }
+        CharSequence data = suffixes.data();
+        int m = prefix.length();
+        int lo = from;
+        int hi = sa.length;
+        int loLcp = 0;
+        int hiLcp = 0;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int offset = sa[mid];
+            int k = suffixes.mismatch(offset, prefix, Math.min(loLcp, hiLcp));
+            int cmp;
+            if (k == m) {
+                cmp = 0;
+            } else if (offset + k == data.length()) {
+                cmp = 1;
+            } else {
+                cmp = Character.compare(prefix.charAt(k), data.charAt(offset + k));
+            }
+            if (cmp > 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+                loLcp = k;
+            } else {
+                hi = mid;
+                hiLcp = k;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the query packed once for every comparison against the suffixes; see
+     * {@link SuffixCollection#pack(CharSequence)}.
+     */
+    private CharSequence pack(CharSequence prefix) {
+        return suffixes == null ? prefix : suffixes.pack(prefix);
+    }
+}
@@ -6,7 +6,7 @@ import java.util.Iterator;
 /**
  * Generates all (<i>length - 1</i>) suffixes of the given sequence of characters and presents them in a collection.
  */
-class SuffixCollection extends AbstractCollection<CharSequence> {
+public class SuffixCollection extends AbstractCollection<CharSequence> {
     private final CharSequence data;
 
     /**
@@ -37,11 +37,85 @@ class SuffixCollection extends AbstractCollection<CharSequence> {
         };
     }
 
+    /**
+     * Returns the suffixes of the given data, packed two bits per character when every character is a nucleotide so
+     * that the indexes compare them a word at a time.
+     *
+     * @param data source for all suffixes.
+     * @return the suffixes of the data.
+     */
+    public static SuffixCollection of(CharSequence data) {
+        if (PackedNucleotides.isPackable(data)) {
+            return new SuffixCollection(new PackedNucleotides(data));
+        }
+        return new SuffixCollection(data);
+    }
+
     @Override
     public int size() {
         return data.length() - 1;
     }
 
+    /**
+     * Returns the source sequence for all suffixes.
+     *
+     * @return the source sequence.
+     */
+    CharSequence data() {
+        return data;
+    }
+
+    /**
+     * Returns the suffix of the data starting from the given begin index.
+     *
+     * @param begin index into data representing the start (inclusive).
+     * @return the suffix starting at the given index.
+     */
+    CharSequence suffix(int begin) {
+        return new Suffix(begin);
+    }
+
+    /**
+     * Returns the given query packed into a {@link PackedNucleotides} if the data is packed and the query can be
+     * packed, so that {@link #mismatch(int, CharSequence, int)} can compare it a word at a time.
+     *
+     * @param query sequence to pack.
+     * @return the packed query, or the query itself if it cannot be compared a word at a time.
+     */
+    CharSequence pack(CharSequence query) {
+        if (data instanceof PackedNucleotides && !(query instanceof PackedNucleotides)
+                && PackedNucleotides.isPackable(query)) {
+            return new PackedNucleotides(query);
+        }
+        return query;
+    }
+
+    /**
+     * Returns the first index at or after <i>from</i> where the suffix starting at <i>begin</i> differs from the given
+     * query, or the length of the shorter of the two if one is a prefix of the other. Packed data and packed queries
+     * are compared 32 bases at a time.
+     *
+     * @param begin index into data representing the start of the suffix (inclusive).
+     * @param query sequence to compare against the suffix.
+     * @param from  index into the query of the first character not yet known to match.
+     * @return the index of the first mismatch.
+     */
+    int mismatch(int begin, CharSequence query, int from) {
+        int n = Math.min(query.length(), data.length() - begin);
+        if (from >= n) {
+            return n;
+        }
+        if (data instanceof PackedNucleotides && query instanceof PackedNucleotides) {
+            PackedNucleotides packed = (PackedNucleotides) data;
+            return from + packed.mismatch(begin + from, (PackedNucleotides) query, from, n - from);
+        }
+        int k = from;
+        while (k < n && data.charAt(begin + k) == query.charAt(k)) {
+            k += 1;
+        }
+        return k;
+    }
+
     /**
      * A suffix of the data starting from the given begin index.
      */
@@ -0,0 +1,175 @@
+package autocomplete.bench;
+
+import autocomplete.ArenaAutocomplete;
+import autocomplete.Autocomplete;
+import autocomplete.BinarySearchAutocomplete;
+import autocomplete.LoudsAutocomplete;
+import autocomplete.PackedTernarySearchTreeAutocomplete;
+import autocomplete.RadixTreeAutocomplete;
+import autocomplete.SequentialSearchAutocomplete;
+import autocomplete.TernarySearchTreeAutocomplete;
+import autocomplete.TreeSetAutocomplete;
+import autocomplete.WeightedTernarySearchTreeAutocomplete;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks every general {@link Autocomplete} implementation on the synthetic {@link Dataset}s: build time and
+ * estimated footprint, and query throughput and latency percentiles for short, long, and missing prefixes. The suffix
+ * indexes only run on the genome and are benchmarked by {@link SuffixIndexBenchmark}.
+ * <pre>
+ * gradle :jmh:jmh -PjmhArgs="AutocompleteBenchmark -p implementation=TreeSet,BinarySearch -p size=1000000"
+ * </pre>
+ * The footprint is reported as the {@code estimatedBytes} counter of the build benchmark, taken from
+ * {@link Autocomplete#stats()} so that off-heap memory, such as the arena of {@link ArenaAutocomplete}, is included.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AutocompleteBenchmark {
+    /**
+     * Constructors of the implementations by name.
+     */
+    static final Map<String, Supplier<Autocomplete>> IMPLEMENTATIONS = new LinkedHashMap<>();
+
+    static {
+        IMPLEMENTATIONS.put("TreeSet", TreeSetAutocomplete::new);
+        IMPLEMENTATIONS.put("BinarySearch", BinarySearchAutocomplete::new);
+        IMPLEMENTATIONS.put("Sequential", SequentialSearchAutocomplete::new);
+        IMPLEMENTATIONS.put("TernarySearchTree", TernarySearchTreeAutocomplete::new);
+        IMPLEMENTATIONS.put("WeightedTernarySearchTree", WeightedTernarySearchTreeAutocomplete::new);
+        IMPLEMENTATIONS.put("PackedTernarySearchTree", PackedTernarySearchTreeAutocomplete::new);
+        IMPLEMENTATIONS.put("RadixTree", RadixTreeAutocomplete::new);
+        IMPLEMENTATIONS.put("Louds", LoudsAutocomplete::new);
+        IMPLEMENTATIONS.put("Arena", ArenaAutocomplete::new);
+    }
+
+    /**
+     * The implementation under test.
+     */
+    @State(Scope.Benchmark)
+    public static class Implementation {
+        @Param({
+                "TreeSet", "BinarySearch", "Sequential", "TernarySearchTree", "WeightedTernarySearchTree",
+                "PackedTernarySearchTree", "RadixTree", "Louds", "Arena"
+        })
+        public String implementation;
+
+        Autocomplete create() {
+            return IMPLEMENTATIONS.get(implementation).get();
+        }
+    }
+
+    /**
+     * An instance of the implementation built once per trial from the dataset.
+     */
+    @State(Scope.Benchmark)
+    public static class Index {
+        Autocomplete autocomplete;
+
+        @Setup
+        public void build(Implementation implementation, Dataset dataset) {
+            autocomplete = implementation.create();
+            autocomplete.addAll(dataset.terms);
+        }
+    }
+
+    /**
+     * Prefixes of one kind, cycled through by each thread.
+     */
+    @State(Scope.Thread)
+    public static class Queries {
+        /**
+         * Either "short", "long", or "missing"; see {@link Dataset#prefixes(String)}.
+         */
+        @Param({"short", "long", "missing"})
+        public String query;
+        CharSequence[] prefixes;
+        int next;
+
+        @Setup
+        public void generate(Dataset dataset) {
+            prefixes = dataset.prefixes(query);
+        }
+
+        CharSequence next() {
+            CharSequence prefix = prefixes[next];
+            next = (next + 1) % prefixes.length;
+            return prefix;
+        }
+    }
+
+    /**
+     * Estimated bytes retained by a built instance, reported alongside the build time. JMH sums event counters over
+     * the measurement iterations, so the footprint is only recorded in the first one.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long estimatedBytes;
+        Autocomplete built;
+        private boolean measuring;
+        private boolean recorded;
+
+        @Setup(Level.Iteration)
+        public void clear(IterationParams iteration) {
+            estimatedBytes = 0;
+            built = null;
+            measuring = iteration.getType() == IterationType.MEASUREMENT;
+        }
+
+        /**
+         * Reads the stats after the build is timed, since walking a tree can cost as much as building it.
+         */
+        @TearDown(Level.Iteration)
+        public void record() {
+            if (measuring && !recorded) {
+                estimatedBytes = built.stats().estimatedBytes();
+                recorded = true;
+            }
+        }
+    }
+
+    /**
+     * Builds a new instance from every term of the dataset.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Autocomplete build(Implementation implementation, Dataset dataset, Footprint footprint) {
+        Autocomplete autocomplete = implementation.create();
+        autocomplete.addAll(dataset.terms);
+        footprint.built = autocomplete;
+        return autocomplete;
+    }
+
+    /**
+     * Returns every match of the next prefix.
+     */
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<CharSequence> query(Index index, Queries queries) {
+        return index.autocomplete.allMatches(queries.next());
+    }
+}
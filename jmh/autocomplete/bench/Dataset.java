@@ -0,0 +1,140 @@
+package autocomplete.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic datasets shaped like the cities and genome data, generated once per trial from a fixed seed. On the
+ * genome, the terms are fixed-length reads starting at consecutive positions.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+    /**
+     * Length of each genome read.
+     */
+    private static final int READ_LENGTH = 64;
+    /**
+     * Number of distinct prefixes of each kind, cycled through by the query benchmarks.
+     */
+    private static final int PREFIXES = 1 << 12;
+
+    /**
+     * Either "cities" or "genome".
+     */
+    @Param({"cities", "genome"})
+    public String dataset;
+    /**
+     * Number of terms in the dataset.
+     */
+    @Param({"100000"})
+    public int size;
+
+    /**
+     * The terms to index.
+     */
+    List<CharSequence> terms;
+    private Random random;
+
+    @Setup
+    public void generate() {
+        random = new Random(42);
+        if (dataset.equals("genome")) {
+            terms = reads(genome(size, random), size);
+        } else {
+            terms = cities(size, random);
+        }
+    }
+
+    /**
+     * Returns prefixes of the given kind: "short" prefixes of 2 characters, "long" prefixes of 8 characters, or 16 on
+     * the genome, and "missing" long prefixes whose last character does not occur in any term.
+     */
+    CharSequence[] prefixes(String kind) {
+        return prefixes(terms, kind, dataset.equals("genome") ? 16 : 8, random);
+    }
+
+    /**
+     * Returns prefixes of the given kind taken from random terms, where long prefixes have the given length.
+     */
+    static CharSequence[] prefixes(List<CharSequence> terms, String kind, int longLength, Random random) {
+        int length = kind.equals("short") ? 2 : longLength;
+        CharSequence[] prefixes = new CharSequence[PREFIXES];
+        for (int i = 0; i < PREFIXES; i += 1) {
+            CharSequence term = terms.get(random.nextInt(terms.size()));
+            StringBuilder prefix = new StringBuilder(term.subSequence(0, Math.min(length, term.length())));
+            if (kind.equals("missing")) {
+                prefix.setCharAt(prefix.length() - 1, '#');
+            }
+            prefixes[i] = prefix.toString();
+        }
+        return prefixes;
+    }
+
+    /**
+     * Returns distinct city-like names: one to three capitalized words built from common syllables, so that popular
+     * prefixes such as "San" or "New" are shared by many names as in the real dataset.
+     */
+    private static List<CharSequence> cities(int n, Random random) {
+        String[] syllables = {
+                "san", "new", "port", "ville", "ton", "burg", "ham", "ford", "los", "la", "el", "mar", "ber", "lin",
+                "ka", "ra", "na", "to", "shi", "yo", "go", "an", "ge", "les", "york", "wood", "field", "mont", "ri",
+                "o", "a", "e", "bad", "dorf", "stadt", "grad", "pur", "abad", "kan", "do", "ba", "zi", "qu",
+                "\u00e9", "\u00f1"
+        };
+        String[] prefixes = {"", "", "", "", "San ", "New ", "Saint-", "El ", "Los ", "Port ", "Bad ", "La "};
+        LinkedHashMap<String, Boolean> names = new LinkedHashMap<>();
+        while (names.size() < n) {
+            StringBuilder name = new StringBuilder(prefixes[random.nextInt(prefixes.length)]);
+            int words = 1 + (random.nextInt(4) == 0 ? 1 : 0);
+            for (int w = 0; w < words; w += 1) {
+                if (w > 0) {
+                    name.append(' ');
+                }
+                int start = name.length();
+                // Skewed syllable choice so that some prefixes are much more common than others.
+                for (int s = 1 + random.nextInt(3); s > 0; s -= 1) {
+                    int i = (int) (syllables.length * Math.pow(random.nextDouble(), 2));
+                    name.append(syllables[i]);
+                }
+                name.setCharAt(start, Character.toUpperCase(name.charAt(start)));
+            }
+            names.put(name.toString(), Boolean.TRUE);
+        }
+        return new ArrayList<>(names.keySet());
+    }
+
+    /**
+     * Returns a random genome long enough for the given number of reads, with occasional repeated segments so that long
+     * prefixes are shared as in real DNA.
+     */
+    static String genome(int n, Random random) {
+        StringBuilder genome = new StringBuilder(n + READ_LENGTH);
+        while (genome.length() < n + READ_LENGTH) {
+            if (genome.length() > 1000 && random.nextInt(50) == 0) {
+                int start = random.nextInt(genome.length() - 1000);
+                genome.append(genome, start, start + 20 + random.nextInt(500));
+            } else {
+                genome.append("ACGT".charAt(random.nextInt(4)));
+            }
+        }
+        return genome.toString();
+    }
+
+    /**
+     * Returns the given number of fixed-length reads starting at consecutive positions of the genome.
+     */
+    static List<CharSequence> reads(String genome, int n) {
+        List<CharSequence> reads = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            reads.add(genome.substring(i, i + READ_LENGTH));
+        }
+        return reads;
+    }
+}
@@ -0,0 +1,146 @@
+package autocomplete.bench;
+
+import autocomplete.Autocomplete;
+import autocomplete.dna.FMIndexAutocomplete;
+import autocomplete.dna.SuffixArrayAutocomplete;
+import autocomplete.dna.SuffixCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks the suffix indexes used for the real genome, which index every suffix of one sequence rather than a
+ * collection of terms. Queries are the same kinds of prefixes as in {@link AutocompleteBenchmark}, taken from reads of
+ * the same synthetic genome, so the two reports are comparable. As there, the footprint is the {@code estimatedBytes}
+ * counter of the build benchmark.
+ * <pre>
+ * gradle :jmh:jmh -PjmhArgs="SuffixIndexBenchmark -p size=1000000"
+ * </pre>
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SuffixIndexBenchmark {
+    /**
+     * Constructors of the suffix indexes by name.
+     */
+    static final Map<String, Supplier<Autocomplete>> INDEXES = new LinkedHashMap<>();
+
+    static {
+        INDEXES.put("SuffixArray", SuffixArrayAutocomplete::new);
+        INDEXES.put("FMIndex", FMIndexAutocomplete::new);
+    }
+
+    /**
+     * A synthetic genome and the reads that the query prefixes are taken from.
+     */
+    @State(Scope.Benchmark)
+    public static class Genome {
+        /**
+         * Number of reads, which is about the length of the genome.
+         */
+        @Param({"100000"})
+        public int size;
+        SuffixCollection suffixes;
+        List<CharSequence> reads;
+        Random random;
+
+        @Setup
+        public void generate() {
+            random = new Random(42);
+            String genome = Dataset.genome(size, random);
+            suffixes = SuffixCollection.of(genome);
+            reads = Dataset.reads(genome, size);
+        }
+    }
+
+    /**
+     * The index under test.
+     */
+    @State(Scope.Benchmark)
+    public static class Implementation {
+        @Param({"SuffixArray", "FMIndex"})
+        public String index;
+
+        Autocomplete create() {
+            return INDEXES.get(index).get();
+        }
+    }
+
+    /**
+     * An instance of the index built once per trial from the genome.
+     */
+    @State(Scope.Benchmark)
+    public static class Index {
+        Autocomplete autocomplete;
+
+        @Setup
+        public void build(Implementation implementation, Genome genome) {
+            autocomplete = implementation.create();
+            autocomplete.addAll(genome.suffixes);
+        }
+    }
+
+    /**
+     * Prefixes of one kind, cycled through by each thread.
+     */
+    @State(Scope.Thread)
+    public static class Queries {
+        /**
+         * Either "short", "long", or "missing"; see {@link Dataset#prefixes(String)}.
+         */
+        @Param({"short", "long", "missing"})
+        public String query;
+        CharSequence[] prefixes;
+        int next;
+
+        @Setup
+        public void generate(Genome genome) {
+            prefixes = Dataset.prefixes(genome.reads, query, 16, genome.random);
+        }
+
+        CharSequence next() {
+            CharSequence prefix = prefixes[next];
+            next = (next + 1) % prefixes.length;
+            return prefix;
+        }
+    }
+
+    /**
+     * Builds a new index over every suffix of the genome.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Autocomplete build(Implementation implementation, Genome genome, AutocompleteBenchmark.Footprint footprint) {
+        Autocomplete autocomplete = implementation.create();
+        autocomplete.addAll(genome.suffixes);
+        footprint.built = autocomplete;
+        return autocomplete;
+    }
+
+    /**
+     * Returns every match of the next prefix.
+     */
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<CharSequence> query(Index index, Queries queries) {
+        return index.autocomplete.allMatches(queries.next());
+    }
+}
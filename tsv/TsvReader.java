@@ -0,0 +1,404 @@
+package tsv;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader for tab-separated UTF-8 data. A background thread reads (and for gzip files, decompresses) the
+ * input into a small pool of reusable chunks, while the calling thread splits rows and parses fields directly from
+ * bytes without regular expressions or boxing. Rows are read with {@link #nextRow()} and their fields are then consumed
+ * from left to right.
+ * <pre>
+ * try (TsvReader input = TsvReader.open("data/cities.tsv.gz")) {
+ *     while (input.nextRow()) {
+ *         String name = input.nextString();
+ *         int population = input.nextInt();
+ *     }
+ * }
+ * </pre>
+ */
+public final class TsvReader implements Closeable {
+    /**
+     * Size of each chunk read by the background thread.
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+    /**
+     * Number of chunks shared between the background thread and the reader.
+     */
+    private static final int CHUNKS = 4;
+    /**
+     * Exactly representable powers of ten, used to parse short decimals without rounding error.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private final InputStream in;
+    private final Thread producer;
+    /**
+     * Chunks waiting to be filled by the background thread.
+     */
+    private final BlockingQueue<Chunk> free;
+    /**
+     * Filled chunks waiting to be parsed, in input order. A chunk with length 0 marks the end of the input.
+     */
+    private final BlockingQueue<Chunk> full;
+    /**
+     * Error raised by the background thread, rethrown by {@link #nextRow()}.
+     */
+    private volatile IOException failure;
+    /**
+     * Set by {@link #close()} to stop the background thread after its current read.
+     */
+    private volatile boolean closed;
+    private Chunk chunk;
+    private int chunkPosition;
+    private boolean ended;
+    /**
+     * Bytes of the current row, without its line terminator.
+     */
+    private byte[] row;
+    private int rowLength;
+    /**
+     * Start of the next unread field in the current row, or -1 if every field has been read.
+     */
+    private int fieldStart;
+
+    /**
+     * Constructs a reader over the given stream and starts reading it in the background.
+     *
+     * @param in the tab-separated input, which is closed by {@link #close()}.
+     */
+    public TsvReader(InputStream in) {
+        this.in = in;
+        this.free = new ArrayBlockingQueue<>(CHUNKS);
+        this.full = new ArrayBlockingQueue<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i += 1) {
+            free.add(new Chunk());
+        }
+        this.row = new byte[256];
+        this.fieldStart = -1;
+        this.producer = new Thread(this::produce, "TsvReader");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    /**
+     * Opens the file at the given path, decompressing it if its name ends in {@code .gz}.
+     *
+     * @param path path to the tab-separated file.
+     * @return a reader over the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static TsvReader open(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        if (path.endsWith(".gz")) {
+            try {
+                in = new GZIPInputStream(in, CHUNK_SIZE);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+        return new TsvReader(in);
+    }
+
+    /**
+     * Advances to the next row, discarding any unread fields of the current row.
+     *
+     * @return true if there is another row, or false at the end of the input.
+     * @throws IOException if the input could not be read.
+     */
+    public boolean nextRow() throws IOException {
+        rowLength = 0;
+        fieldStart = -1;
+        boolean empty = true;
+        while (true) {
+            if (chunk == null || chunkPosition == chunk.length) {
+                if (!nextChunk()) {
+                    if (empty) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+            empty = false;
+            byte[] data = chunk.data;
+            int end = chunkPosition;
+            while (end < chunk.length && data[end] != '\n') {
+                end += 1;
+            }
+            append(data, chunkPosition, end);
+            if (end < chunk.length) {
+                chunkPosition = end + 1;
+                break;
+            }
+            chunkPosition = end;
+        }
+        if (rowLength > 0 && row[rowLength - 1] == '\r') {
+            rowLength -= 1;
+        }
+        fieldStart = 0;
+        return true;
+    }
+
+    /**
+     * Returns true if the current row has another unread field.
+     *
+     * @return true if the current row has another unread field.
+     */
+    public boolean hasField() {
+        return fieldStart >= 0;
+    }
+
+    /**
+     * Reads the next field of the current row as a string.
+     *
+     * @return the next field.
+     * @throws NoSuchElementException if the current row has no more fields.
+     */
+    public String nextString() {
+        int start = fieldStart;
+        int end = nextFieldEnd();
+        return new String(row, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next field of the current row as a decimal integer.
+     *
+     * @return the next field.
+     * @throws NoSuchElementException if the current row has no more fields.
+     * @throws NumberFormatException  if the field is not an integer in range.
+     */
+    public int nextInt() {
+        long value = nextLong();
+        if ((int) value != value) {
+            throw new NumberFormatException("Value out of range for int: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field of the current row as a decimal long.
+     *
+     * @return the next field.
+     * @throws NoSuchElementException if the current row has no more fields.
+     * @throws NumberFormatException  if the field is not a long in range.
+     */
+    public long nextLong() {
+        int start = fieldStart;
+        int end = nextFieldEnd();
+        int i = start;
+        boolean negative = i < end && row[i] == '-';
+        if (i < end && (row[i] == '-' || row[i] == '+')) {
+            i += 1;
+        }
+        if (i == end) {
+            throw invalid(start, end);
+        }
+        // Accumulate negatively so that Long.MIN_VALUE can be represented.
+        long value = 0;
+        for (; i < end; i += 1) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                throw invalid(start, end);
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw invalid(start, end);
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Reads the next field of the current row as a double. Decimals with at most 15 significant digits and a small
+     * exponent are parsed directly from bytes; other values fall back to {@link Double#parseDouble(String)}.
+     *
+     * @return the next field.
+     * @throws NoSuchElementException if the current row has no more fields.
+     * @throws NumberFormatException  if the field is not a double.
+     */
+    public double nextDouble() {
+        int start = fieldStart;
+        int end = nextFieldEnd();
+        int i = start;
+        boolean negative = i < end && row[i] == '-';
+        if (i < end && (row[i] == '-' || row[i] == '+')) {
+            i += 1;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean point = false;
+        for (; i < end; i += 1) {
+            byte b = row[i];
+            if (b >= '0' && b <= '9') {
+                digits += 1;
+                if (mantissa > 0 || b != '0') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    significant += 1;
+                }
+                if (point) {
+                    exponent -= 1;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i < end && (row[i] == 'e' || row[i] == 'E') && digits > 0) {
+            i += 1;
+            boolean negativeExponent = i < end && row[i] == '-';
+            if (i < end && (row[i] == '-' || row[i] == '+')) {
+                i += 1;
+            }
+            int value = 0;
+            int exponentDigits = 0;
+            for (; i < end && row[i] >= '0' && row[i] <= '9' && value < 1000; i += 1) {
+                value = value * 10 + (row[i] - '0');
+                exponentDigits += 1;
+            }
+            if (exponentDigits == 0) {
+                digits = 0;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i < end || digits == 0 || significant > 15 || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(new String(row, start, end - start, StandardCharsets.US_ASCII));
+        }
+        // Both the mantissa and the power of ten are exact, so one multiplication or division rounds correctly.
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Stops the background thread and closes the underlying stream. Waits for a read in progress to finish first,
+     * since streams such as {@link GZIPInputStream} ignore interrupts and fail if closed while they are being read.
+     *
+     * @throws IOException if the stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        producer.interrupt();
+        boolean interrupted = false;
+        while (producer.isAlive()) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        in.close();
+    }
+
+    /**
+     * Returns the end of the next field and moves past it.
+     */
+    private int nextFieldEnd() {
+        if (fieldStart < 0) {
+            throw new NoSuchElementException();
+        }
+        int end = fieldStart;
+        while (end < rowLength && row[end] != '\t') {
+            end += 1;
+        }
+        fieldStart = end < rowLength ? end + 1 : -1;
+        return end;
+    }
+
+    private NumberFormatException invalid(int start, int end) {
+        return new NumberFormatException(
+                "For input string: \"" + new String(row, start, end - start, StandardCharsets.UTF_8) + "\""
+        );
+    }
+
+    /**
+     * Appends data[start, end) to the current row, growing the row buffer if needed.
+     */
+    private void append(byte[] data, int start, int end) {
+        int length = end - start;
+        if (rowLength + length > row.length) {
+            byte[] resized = new byte[Math.max(2 * row.length, rowLength + length)];
+            System.arraycopy(row, 0, resized, 0, rowLength);
+            row = resized;
+        }
+        System.arraycopy(data, start, row, rowLength, length);
+        rowLength += length;
+    }
+
+    /**
+     * Returns the current chunk to the background thread and waits for the next one.
+     */
+    private boolean nextChunk() throws IOException {
+        if (ended) {
+            return false;
+        }
+        if (chunk != null) {
+            free.add(chunk);
+            chunk = null;
+        }
+        try {
+            chunk = full.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading", e);
+        }
+        chunkPosition = 0;
+        if (chunk.length == 0) {
+            ended = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fills free chunks from the input until it ends, then passes along an empty chunk.
+     */
+    private void produce() {
+        try {
+            while (!closed) {
+                Chunk next = free.take();
+                try {
+                    next.length = in.readNBytes(next.data, 0, next.data.length);
+                } catch (IOException e) {
+                    failure = e;
+                    next.length = 0;
+                }
+                full.put(next);
+                if (next.length == 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed before the end of the input.
+        }
+    }
+
+    /**
+     * A reusable buffer of input bytes.
+     */
+    private static class Chunk {
+        private final byte[] data = new byte[CHUNK_SIZE];
+        private int length;
+    }
+}